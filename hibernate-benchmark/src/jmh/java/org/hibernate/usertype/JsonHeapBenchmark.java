@@ -0,0 +1,158 @@
+package org.hibernate.usertype;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Heap retained by loaded jsonb values of many rows, default against compact node factory
+ * Each operation loads ROWS rows and holds them, the secondary metric bytesPerRow is the heap
+ * after GC held by the rows of the last operation of the iteration, divided by ROWS.
+ * JMH sums event counters over measurement iterations, each iteration reports its share of the mean.
+ * <p>
+ * ./gradlew :hibernate-benchmark:jmh -Pbenchmark='JsonHeapBenchmark'
+ * <p>
+ * Created By: Fuxing Loh
+ * Date: 19/10/2026
+ * Time: 5:20 PM
+ * Project: hibernate-postgres-jsonb
+ */
+@State(Scope.Thread)
+public class JsonHeapBenchmark {
+
+    static final int ROWS = 100_000;
+
+    private static final ObjectMapper Mapper = new ObjectMapper();
+    private static final String[] Names = {"json"};
+    private static final String[] Status = {"ACTIVE", "INACTIVE", "PENDING", "DELETED"};
+    private static final String[] Types = {"customer", "merchant", "admin"};
+
+    /**
+     * default: ObjectMapper of JsonUserType, compact: CompactMapper
+     */
+    @Param({"default", "compact"})
+    String mapper;
+
+    /**
+     * load: values as loaded by nullSafeGet, snapshot: deep copies of loaded values for dirty checking
+     */
+    @Param({"load", "snapshot"})
+    String retain;
+
+    private JsonUserType type;
+    private ResultSet[] resultSets;
+    private Object[] loaded;
+    private Object[] held;
+    private long baseline;
+
+    /**
+     * Heap retained per row, after GC, by the rows held at the end of the iteration
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Retained {
+        public double bytesPerRow;
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        final Properties properties = new Properties();
+        if (mapper.equals("compact")) {
+            properties.setProperty(JsonUserType.MAPPER, CompactMapper.class.getName());
+        }
+        type = new JsonUserType();
+        type.setParameterValues(properties);
+
+        resultSets = new ResultSet[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            resultSets[i] = MockJdbc.resultSet(Mapper.writeValueAsBytes(row(i)));
+        }
+        if (retain.equals("snapshot")) {
+            loaded = load();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void before() throws InterruptedException {
+        held = null;
+        baseline = used();
+    }
+
+    @TearDown(Level.Iteration)
+    public void after(Retained retained, BenchmarkParams benchmark, IterationParams iteration) throws InterruptedException {
+        double bytesPerRow = (double) (used() - baseline) / ROWS;
+        if (iteration.getType() == IterationType.MEASUREMENT) {
+            bytesPerRow /= benchmark.getMeasurement().getCount();
+        }
+        retained.bytesPerRow = bytesPerRow;
+        held = null;
+    }
+
+    @Benchmark
+    public Object[] rows() throws SQLException {
+        held = retain.equals("load") ? load() : snapshot();
+        return held;
+    }
+
+    private Object[] load() throws SQLException {
+        Object[] values = new Object[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            values[i] = type.nullSafeGet(resultSets[i], Names, null, null);
+        }
+        return values;
+    }
+
+    private Object[] snapshot() {
+        Object[] values = new Object[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            values[i] = type.deepCopy(loaded[i]);
+        }
+        return values;
+    }
+
+    /**
+     * @return used heap after repeated full GCs
+     */
+    private static long used() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * @return document of about 180 bytes with enum like values, a nested object and an array
+     */
+    private static ObjectNode row(int i) {
+        ObjectNode node = Mapper.createObjectNode()
+                .put("id", i)
+                .put("status", Status[i % Status.length])
+                .put("type", Types[i % Types.length])
+                .put("name", "user " + i)
+                .put("country", "C" + (i % 20))
+                .put("active", i % 2 == 0)
+                .put("score", i % 100);
+        node.putArray("tags").add("vip").add("t" + (i % 5));
+        node.putObject("address")
+                .put("city", "city " + (i % 50))
+                .put("zip", String.valueOf(i % 1000))
+                .put("street", i + " main street");
+        return node;
+    }
+}
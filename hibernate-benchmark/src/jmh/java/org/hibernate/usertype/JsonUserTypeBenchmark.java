@@ -0,0 +1,179 @@
+package org.hibernate.usertype;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * JsonUserType hot paths against mocked jdbc, per document size, shape and type parameters
+ * Run with the gc profiler for allocations per operation (gc.alloc.rate.norm)
+ * <p>
+ * Created By: Fuxing Loh
+ * Date: 18/10/2026
+ * Time: 6:10 PM
+ * Project: hibernate-postgres-jsonb
+ */
+@State(Scope.Thread)
+public class JsonUserTypeBenchmark {
+
+    private static final ObjectMapper Mapper = new ObjectMapper();
+    private static final String[] Names = {"json"};
+
+    /**
+     * Approximate serialized size in bytes
+     */
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    int size;
+
+    /**
+     * flat: one object of scalars, nested: chains of objects, array: array of small records
+     */
+    @Param({"flat", "nested", "array"})
+    String shape;
+
+    /**
+     * Type parameters as name=value pairs separated by ',', "default" for none
+     */
+    @Param({"default", "lazy=true", "dirtyCheck=fingerprint", "binary=true"})
+    String parameters;
+
+    private JsonUserType type;
+    private ResultSet resultSet;
+    private PreparedStatement preparedStatement;
+    private final Object[] bound = new Object[1];
+
+    private Object value;
+    private Object snapshot;
+    private Serializable cached;
+
+    @Setup
+    public void setup() throws Exception {
+        final Properties properties = new Properties();
+        if (!parameters.equals("default")) {
+            for (String pair : parameters.split(",")) {
+                String[] split = pair.split("=", 2);
+                properties.setProperty(split[0], split[1]);
+            }
+        }
+        type = new JsonUserType();
+        type.setParameterValues(properties);
+
+        resultSet = MockJdbc.resultSet(Mapper.writeValueAsBytes(document(shape, size)));
+        preparedStatement = MockJdbc.preparedStatement(bound);
+
+        // As loaded by hibernate
+        value = type.nullSafeGet(resultSet, Names, null, null);
+        snapshot = type.deepCopy(value);
+        cached = type.disassemble(value);
+    }
+
+    @Benchmark
+    public Object nullSafeGet() throws SQLException {
+        return type.nullSafeGet(resultSet, Names, null, null);
+    }
+
+    /**
+     * Load and read the document, includes the deferred parse of lazy values
+     */
+    @Benchmark
+    public int nullSafeGetAndRead() throws SQLException {
+        return ((JsonNode) type.nullSafeGet(resultSet, Names, null, null)).size();
+    }
+
+    @Benchmark
+    public Object nullSafeSet() throws SQLException {
+        type.nullSafeSet(preparedStatement, value, 1, null);
+        return bound[0];
+    }
+
+    @Benchmark
+    public Object deepCopy() {
+        return type.deepCopy(value);
+    }
+
+    /**
+     * Flush time dirty check of the loaded snapshot against the unchanged value
+     */
+    @Benchmark
+    public boolean equals() {
+        return type.equals(snapshot, value);
+    }
+
+    @Benchmark
+    public Serializable disassemble() {
+        return type.disassemble(value);
+    }
+
+    @Benchmark
+    public Object assemble() {
+        return type.assemble(cached, null);
+    }
+
+    /**
+     * @param shape flat, nested or array
+     * @param size  approximate serialized size in bytes
+     * @return generated document, same for the same arguments
+     */
+    static JsonNode document(String shape, int size) throws IOException {
+        switch (shape) {
+            case "flat":
+                return flat(size);
+            case "nested":
+                return nested(size);
+            case "array":
+                return array(size);
+            default:
+                throw new IllegalArgumentException(shape);
+        }
+    }
+
+    private static JsonNode flat(int size) {
+        ObjectNode node = Mapper.createObjectNode();
+        for (int i = 0, length = 2; length < size; i++) {
+            node.put("key" + i, "value " + i);
+            node.put("number" + i, i * 31L);
+            length += 30 + 4 * String.valueOf(i).length();
+        }
+        return node;
+    }
+
+    private static JsonNode nested(int size) throws IOException {
+        ObjectNode node = Mapper.createObjectNode();
+        for (int i = 0, length = 2; length < size; i++) {
+            ObjectNode chain = node.putObject("branch" + i);
+            for (int depth = 0; depth < 4; depth++) {
+                chain.put("id", i * 4 + depth).put("name", "node " + depth);
+                chain = chain.putObject("child");
+            }
+            length += Mapper.writeValueAsBytes(node.get("branch" + i)).length + 12;
+        }
+        return node;
+    }
+
+    private static JsonNode array(int size) throws IOException {
+        ArrayNode node = Mapper.createArrayNode();
+        for (int i = 0, length = 2; length < size; i++) {
+            ObjectNode record = node.addObject()
+                    .put("id", i)
+                    .put("name", "record " + i)
+                    .put("active", i % 2 == 0)
+                    .put("score", i * 0.5);
+            record.putArray("tags").add("a").add("b");
+            length += Mapper.writeValueAsBytes(record).length + 1;
+        }
+        return node;
+    }
+}
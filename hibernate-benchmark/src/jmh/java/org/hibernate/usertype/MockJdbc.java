@@ -0,0 +1,56 @@
+package org.hibernate.usertype;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Minimal jdbc objects for driving JsonUserType without a database
+ * <p>
+ * Created By: Fuxing Loh
+ * Date: 18/10/2026
+ * Time: 6:10 PM
+ * Project: hibernate-postgres-jsonb
+ */
+final class MockJdbc {
+
+    private MockJdbc() {/* NOT Suppose to init */}
+
+    /**
+     * ResultSet.getBytes returns the cell as the postgres driver does for text columns
+     *
+     * @param cell raw cell bytes, returned without copy
+     * @return result set answering getBytes, wasNull
+     */
+    static ResultSet resultSet(byte[] cell) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getBytes":
+                            return cell;
+                        case "wasNull":
+                            return cell == null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * @param bound bound[0] is set to the last value bound
+     * @return prepared statement answering setObject, setNull
+     */
+    static PreparedStatement preparedStatement(Object[] bound) {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setObject":
+                        case "setNull":
+                            bound[0] = args[1];
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
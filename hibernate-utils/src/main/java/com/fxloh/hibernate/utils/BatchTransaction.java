@@ -0,0 +1,35 @@
+package com.fxloh.hibernate.utils;
+
+import javax.persistence.EntityManager;
+import java.util.function.BiConsumer;
+
+/**
+ * Functional batch Transaction, applied to each item of a batch
+ * <p>
+ * Created by: Fuxing
+ * Date: 18/10/2026
+ * Time: 7:05 PM
+ * Project: hibernate-utils
+ */
+@FunctionalInterface
+public interface BatchTransaction<T> extends BiConsumer<EntityManager, T>, TransactionError {
+
+    /**
+     * Entities persisted or loaded here are detached at the end of each batch
+     *
+     * @param em   provided entity manager
+     * @param item item of batch
+     */
+    void accept(EntityManager em, T item);
+
+    /**
+     * Default error handling
+     *
+     * @param e exception
+     * @return boolean if error is handled and should not be thrown
+     */
+    default boolean error(Exception e) {
+        return true;
+    }
+
+}
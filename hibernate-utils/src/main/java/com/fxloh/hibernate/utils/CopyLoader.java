@@ -0,0 +1,263 @@
+package com.fxloh.hibernate.utils;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.internal.ForeignKeys;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.PostInsertIdentifierGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.CompositeType;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.StringRepresentableType;
+import org.hibernate.type.Type;
+import org.hibernate.type.VersionType;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bulk insert entities with postgres COPY in text format
+ * Columns and values are taken from the entity persister, values are written with the text representation
+ * of their hibernate type, jsonb values of JsonUserType are written by its own configured writer
+ * Binary columns (bytea, blob) have no text representation in COPY text format and are rejected.
+ * <p>
+ * COPY bypasses the persistence context, events, cascades and the second level cache.
+ * Only single table entities without inheritance, with assigned or generated (not identity) ids.
+ * <p>
+ * Created by: Fuxing
+ * Date: 18/10/2026
+ * Time: 8:10 PM
+ * Project: hibernate-utils
+ */
+public final class CopyLoader<T> {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SessionImplementor session;
+    private final AbstractEntityPersister persister;
+    private final List<Integer> properties = new ArrayList<>();
+    private final String sql;
+
+    /**
+     * @param entityManager entity manager with an active transaction
+     * @param entityClass   entity class to copy into its table
+     * @throws HibernateException if entity cannot be copied
+     */
+    public CopyLoader(EntityManager entityManager, Class<T> entityClass) {
+        this.session = entityManager.unwrap(SessionImplementor.class);
+
+        EntityPersister persister = session.getFactory().getEntityPersister(entityClass.getName());
+        if (!(persister instanceof AbstractEntityPersister) || persister.getEntityMetamodel().isInherited()
+                || persister.getEntityMetamodel().hasSubclasses()) {
+            throw new HibernateException("COPY requires a single table entity without inheritance: " + entityClass.getName());
+        }
+        if (persister.getIdentifierGenerator() instanceof PostInsertIdentifierGenerator) {
+            throw new HibernateException("COPY requires assigned or pre insert generated ids: " + entityClass.getName());
+        }
+        this.persister = (AbstractEntityPersister) persister;
+
+        // id columns, then every insertable column of properties in persister order
+        List<String> columns = new ArrayList<>();
+        Collections.addAll(columns, this.persister.getIdentifierColumnNames());
+        checkText(persister.getIdentifierType(), this.persister.getIdentifierColumnNames());
+        for (int i = 0; i < persister.getPropertyTypes().length; i++) {
+            String[] names = this.persister.getPropertyColumnNames(i);
+            if (persister.getPropertyInsertability()[i] && names.length > 0
+                    && !persister.getPropertyTypes()[i].isCollectionType()) {
+                checkText(persister.getPropertyTypes()[i], names);
+                Collections.addAll(columns, names);
+                properties.add(i);
+            }
+        }
+        this.sql = "COPY " + this.persister.getTableName() + " (" + String.join(", ", columns) + ") FROM STDIN";
+    }
+
+    /**
+     * @param type    type of the columns
+     * @param columns column names of the type
+     * @throws HibernateException if a column is binary
+     */
+    private void checkText(Type type, String[] columns) {
+        int[] sqlTypes = type.sqlTypes(session.getFactory());
+        for (int i = 0; i < sqlTypes.length; i++) {
+            switch (sqlTypes[i]) {
+                case Types.BINARY:
+                case Types.VARBINARY:
+                case Types.LONGVARBINARY:
+                case Types.BLOB:
+                    String column = i < columns.length ? columns[i] : type.getName();
+                    throw new HibernateException("COPY text format does not support binary column: "
+                            + persister.getTableName() + "." + column);
+            }
+        }
+    }
+
+    /**
+     * @return COPY statement
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Write entities to the table with a single COPY, ids are generated and set on entities without one
+     *
+     * @param entities entities to copy
+     * @return number of rows copied
+     * @throws HibernateException if a value cannot be written or copy failed
+     */
+    public long copy(Iterable<T> entities) {
+        final CopyIn copyIn;
+        try {
+            copyIn = session.connection().unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+        } catch (SQLException e) {
+            throw new HibernateException("Unable to start " + sql, e);
+        }
+
+        final List<String> values = new ArrayList<>();
+        try {
+            // Rows are encoded to UTF-8 by one writer, sent to the driver in chunks
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(new CopyOutput(copyIn), StandardCharsets.UTF_8), BUFFER_SIZE);
+            for (T entity : entities) {
+                values.clear();
+                values(entity, values);
+
+                for (int i = 0; i < values.size(); i++) {
+                    if (i > 0) writer.write('\t');
+                    escape(values.get(i), writer);
+                }
+                writer.write('\n');
+            }
+            writer.flush();
+            return copyIn.endCopy();
+        } catch (SQLException | IOException | RuntimeException e) {
+            try {
+                if (copyIn.isActive()) copyIn.cancelCopy();
+            } catch (SQLException ignored) {
+            }
+            if (e instanceof HibernateException) throw (HibernateException) e;
+            throw new HibernateException("Unable to " + sql, e);
+        }
+    }
+
+    /**
+     * @param entity entity to write, id is generated if null
+     * @param values text values of a row, null for NULL
+     */
+    private void values(T entity, List<String> values) {
+        Serializable id = persister.getIdentifier(entity, session);
+        if (id == null) {
+            id = persister.getIdentifierGenerator().generate(session, entity);
+            persister.setIdentifier(entity, id, session);
+        }
+        values(persister.getIdentifierType(), id, values);
+
+        for (int i : properties) {
+            Type type = persister.getPropertyTypes()[i];
+            Object value = persister.getPropertyValue(entity, i);
+            if (value == null && i == persister.getVersionProperty()) {
+                value = ((VersionType<?>) type).seed(session);
+                persister.setPropertyValue(entity, i, value);
+            }
+            values(type, value, values);
+        }
+    }
+
+    /**
+     * Flatten value of type to the text of its columns
+     */
+    @SuppressWarnings("unchecked")
+    private void values(Type type, Object value, List<String> values) {
+        if (type.isComponentType()) {
+            CompositeType composite = (CompositeType) type;
+            Type[] subtypes = composite.getSubtypes();
+            Object[] subvalues = value == null ? new Object[subtypes.length] : composite.getPropertyValues(value, session);
+            for (int i = 0; i < subtypes.length; i++) {
+                values(subtypes[i], subvalues[i], values);
+            }
+        } else if (type.isEntityType()) {
+            EntityType entityType = (EntityType) type;
+            if (!entityType.isReferenceToPrimaryKey()) {
+                throw new HibernateException("COPY does not support property-ref associations: " + entityType.getName());
+            }
+            Object id = ForeignKeys.getEntityIdentifierIfNotUnsaved(entityType.getAssociatedEntityName(), value, session);
+            values(entityType.getIdentifierOrUniqueKeyType(session.getFactory()), id, values);
+        } else if (type instanceof StringRepresentableType) {
+            values.add(value == null ? null : ((StringRepresentableType<Object>) type).toString(value));
+        } else {
+            throw new HibernateException("COPY does not support type: " + type.getName());
+        }
+    }
+
+    /**
+     * Escape value for COPY text format, runs without special characters are written as is
+     */
+    private static void escape(String value, Writer writer) throws IOException {
+        if (value == null) {
+            writer.write("\\N");
+            return;
+        }
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            String escaped;
+            switch (value.charAt(i)) {
+                case '\\':
+                    escaped = "\\\\";
+                    break;
+                case '\t':
+                    escaped = "\\t";
+                    break;
+                case '\n':
+                    escaped = "\\n";
+                    break;
+                case '\r':
+                    escaped = "\\r";
+                    break;
+                default:
+                    continue;
+            }
+            writer.write(value, start, i - start);
+            writer.write(escaped);
+            start = i + 1;
+        }
+        writer.write(value, start, value.length() - start);
+    }
+
+    /**
+     * Encoded rows are sent to the driver as they are written
+     */
+    private static final class CopyOutput extends OutputStream {
+        private final CopyIn copyIn;
+
+        private CopyOutput(CopyIn copyIn) {
+            this.copyIn = copyIn;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            try {
+                copyIn.writeToCopy(bytes, offset, length);
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
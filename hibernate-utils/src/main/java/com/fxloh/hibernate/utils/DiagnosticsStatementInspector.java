@@ -0,0 +1,21 @@
+package com.fxloh.hibernate.utils;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Passes the SQL of statements to the TransactionDiagnostics of the current thread, for repeated statements
+ * Configure as hibernate.session_factory.statement_inspector, SQL is returned unchanged
+ * <p>
+ * Created by: Fuxing
+ * Date: 19/10/2026
+ * Time: 2:20 AM
+ * Project: hibernate-utils
+ */
+public class DiagnosticsStatementInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        TransactionDiagnostics.statement(sql);
+        return sql;
+    }
+}
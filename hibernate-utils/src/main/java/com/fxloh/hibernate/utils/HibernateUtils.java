@@ -2,7 +2,9 @@ package com.fxloh.hibernate.utils;
 
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -51,6 +53,64 @@ public final class HibernateUtils {
         throw new RuntimeException(new IllegalStateException("Factory already initialized."));
     }
 
+    /**
+     * Setup a routing provider, each replica factory is created from the same persistence unit
+     * with its properties, schema generation is disabled on replicas
+     *
+     * @param unitName             persistence unit name
+     * @param properties           nullable properties for overriding of the primary
+     * @param replicaProperties    properties for overriding of each replica, e.g. the replica url
+     * @param readYourWritesMillis millis after a write the writing thread reads from the primary, 0 to disable
+     * @return created RoutingTransactionProvider
+     * @see RoutingTransactionProvider
+     */
+    public static RoutingTransactionProvider setupRoutingFactory(String unitName, Map<String, String> properties,
+                                                                 List<Map<String, String>> replicaProperties,
+                                                                 long readYourWritesMillis) {
+        if (!providers.containsKey(unitName)) {
+            synchronized (HibernateUtils.class) {
+                if (!providers.containsKey(unitName)) {
+                    // Setup Factories & Provider, factories already built are closed if any fails
+                    List<EntityManagerFactory> factories = new ArrayList<>();
+                    RoutingTransactionProvider provider;
+                    try {
+                        EntityManagerFactory factory = Persistence.createEntityManagerFactory(unitName, properties);
+                        factories.add(factory);
+                        List<EntityManagerFactory> replicas = new ArrayList<>();
+                        for (Map<String, String> replica : replicaProperties) {
+                            EntityManagerFactory replicaFactory = Persistence.createEntityManagerFactory(unitName, replicaProperties(replica));
+                            factories.add(replicaFactory);
+                            replicas.add(replicaFactory);
+                        }
+                        provider = new RoutingTransactionProvider(factory, replicas, readYourWritesMillis);
+                    } catch (RuntimeException e) {
+                        for (EntityManagerFactory factory : factories) {
+                            try {
+                                factory.close();
+                            } catch (RuntimeException suppressed) {
+                                e.addSuppressed(suppressed);
+                            }
+                        }
+                        throw e;
+                    }
+                    // Put to Map
+                    providers.put(unitName, provider);
+                    return provider;
+                }
+            }
+        }
+        throw new RuntimeException(new IllegalStateException("Factory already initialized."));
+    }
+
+    /**
+     * Replicas are read only, empty hbm2ddl.auto disables schema generation
+     */
+    private static Map<String, String> replicaProperties(Map<String, String> properties) {
+        Map<String, String> replica = new HashMap<>(properties);
+        replica.put("hibernate.hbm2ddl.auto", "");
+        return replica;
+    }
+
     /**
      * Shutdown the default instance
      * Thread-safe
@@ -67,7 +127,7 @@ public final class HibernateUtils {
         if (providers.containsKey(unitName)) {
             synchronized (HibernateUtils.class) {
                 if (providers.containsKey(unitName)) {
-                    providers.remove(unitName).getFactory().close();
+                    providers.remove(unitName).close();
                 }
             }
         }
@@ -131,5 +191,41 @@ public final class HibernateUtils {
     public static <T> Optional<T> optional(OptionalTransaction<T> optionalTransaction) {
         return get().optional(optionalTransaction);
     }
-}
 
+    /**
+     * Run jpa style read only transaction in functional style with reduce
+     * Using the default transaction provider
+     *
+     * @param reduceTransaction reduce transaction to apply
+     * @param <T>               type of object
+     * @return object
+     */
+    public static <T> T read(ReduceTransaction<T> reduceTransaction) {
+        return get().read(reduceTransaction);
+    }
+
+    /**
+     * Run jpa style read only transaction in functional style with optional transaction
+     * Using the default transaction provider
+     *
+     * @param optionalTransaction reduce transaction to apply that with convert to optional
+     * @param <T>                 type of object
+     * @return object
+     */
+    public static <T> Optional<T> readOptional(OptionalTransaction<T> optionalTransaction) {
+        return get().readOptional(optionalTransaction);
+    }
+
+    /**
+     * Run jpa style transaction over items, flush and clear every batchSize items
+     * Using the default transaction provider
+     *
+     * @param items            items to apply batch transaction to
+     * @param batchSize        number of items per flush and clear
+     * @param batchTransaction batch transaction to apply to each item
+     * @param <T>              type of item
+     */
+    public static <T> void batch(Iterable<T> items, int batchSize, BatchTransaction<T> batchTransaction) {
+        get().batch(items, batchSize, batchTransaction);
+    }
+}
@@ -0,0 +1,161 @@
+package com.fxloh.hibernate.utils;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Jsonb metrics of JsonUserType of a persistence unit, requires the jsonb module on the classpath
+ * Reads and writes count the values and bytes moved through jdbc,
+ * parses and serializes time the jackson work, unread lazy values are never parsed
+ * <p>
+ * Created by: Fuxing
+ * Date: 19/10/2026
+ * Time: 1:00 AM
+ * Project: hibernate-utils
+ */
+public final class JsonMetrics implements JsonMetricsMBean {
+
+    private final String unitName;
+    private final LatencyHistogram parse = new LatencyHistogram();
+    private final LatencyHistogram serialize = new LatencyHistogram();
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder readBytes = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder writeBytes = new LongAdder();
+
+    JsonMetrics(String unitName) {
+        this.unitName = unitName;
+    }
+
+    /**
+     * @return persistence unit name of the metrics
+     */
+    public String getUnitName() {
+        return unitName;
+    }
+
+    /**
+     * @return histogram of parse nanos
+     */
+    public LatencyHistogram getParse() {
+        return parse;
+    }
+
+    /**
+     * @return histogram of serialize nanos
+     */
+    public LatencyHistogram getSerialize() {
+        return serialize;
+    }
+
+    /**
+     * @param bytes jsonb bytes read from a result set
+     */
+    void read(int bytes) {
+        reads.increment();
+        readBytes.add(bytes);
+        for (MetricsListener listener : Metrics.listeners()) {
+            listener.jsonRead(unitName, bytes);
+        }
+    }
+
+    /**
+     * @param nanos nanos to parse a jsonb value
+     */
+    void parsed(long nanos) {
+        parse.record(nanos);
+        for (MetricsListener listener : Metrics.listeners()) {
+            listener.jsonParse(unitName, nanos);
+        }
+    }
+
+    /**
+     * @param bytes UTF-8 jsonb bytes bound to a statement
+     */
+    void write(int bytes) {
+        writes.increment();
+        writeBytes.add(bytes);
+        for (MetricsListener listener : Metrics.listeners()) {
+            listener.jsonWrite(unitName, bytes);
+        }
+    }
+
+    /**
+     * @param nanos nanos to serialize a jsonb value
+     */
+    void serialized(long nanos) {
+        serialize.record(nanos);
+        for (MetricsListener listener : Metrics.listeners()) {
+            listener.jsonSerialize(unitName, nanos);
+        }
+    }
+
+    @Override
+    public long getReads() {
+        return reads.sum();
+    }
+
+    @Override
+    public long getReadBytes() {
+        return readBytes.sum();
+    }
+
+    @Override
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    @Override
+    public long getWriteBytes() {
+        return writeBytes.sum();
+    }
+
+    @Override
+    public long getParses() {
+        return parse.getCount();
+    }
+
+    @Override
+    public double getParseMeanMillis() {
+        return LatencyHistogram.millis(parse.getMean());
+    }
+
+    @Override
+    public double getParseP99Millis() {
+        return LatencyHistogram.millis(parse.getPercentile(99));
+    }
+
+    @Override
+    public double getParseMaxMillis() {
+        return LatencyHistogram.millis(parse.getMax());
+    }
+
+    @Override
+    public long getSerializes() {
+        return serialize.getCount();
+    }
+
+    @Override
+    public double getSerializeMeanMillis() {
+        return LatencyHistogram.millis(serialize.getMean());
+    }
+
+    @Override
+    public double getSerializeP99Millis() {
+        return LatencyHistogram.millis(serialize.getPercentile(99));
+    }
+
+    @Override
+    public double getSerializeMaxMillis() {
+        return LatencyHistogram.millis(serialize.getMax());
+    }
+
+    @Override
+    public void reset() {
+        parse.reset();
+        serialize.reset();
+        reads.reset();
+        readBytes.reset();
+        writes.reset();
+        writeBytes.reset();
+    }
+}
@@ -0,0 +1,38 @@
+package com.fxloh.hibernate.utils;
+
+/**
+ * JMX view of JsonMetrics, latencies in millis
+ * <p>
+ * Created by: Fuxing
+ * Date: 19/10/2026
+ * Time: 1:00 AM
+ * Project: hibernate-utils
+ */
+public interface JsonMetricsMBean {
+
+    long getReads();
+
+    long getReadBytes();
+
+    long getWrites();
+
+    long getWriteBytes();
+
+    long getParses();
+
+    double getParseMeanMillis();
+
+    double getParseP99Millis();
+
+    double getParseMaxMillis();
+
+    long getSerializes();
+
+    double getSerializeMeanMillis();
+
+    double getSerializeP99Millis();
+
+    double getSerializeMaxMillis();
+
+    void reset();
+}
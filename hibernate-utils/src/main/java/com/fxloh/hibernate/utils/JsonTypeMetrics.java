@@ -0,0 +1,90 @@
+package com.fxloh.hibernate.utils;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.usertype.JsonTypeListener;
+import org.hibernate.usertype.JsonUserType;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Records jsonb values of JsonUserType into the JsonMetrics of their persistence unit
+ * Only loaded if the jsonb module is on the classpath, see Metrics
+ * <p>
+ * Created by: Fuxing
+ * Date: 19/10/2026
+ * Time: 11:20 AM
+ * Project: hibernate-utils
+ */
+final class JsonTypeMetrics implements JsonTypeListener {
+    private static final JsonTypeMetrics instance = new JsonTypeMetrics();
+
+    /**
+     * Metrics by session factory of a provider, named by the provider
+     */
+    private final ConcurrentMap<SessionFactoryImplementor, JsonMetrics> factories = new ConcurrentHashMap<>();
+
+    private JsonTypeMetrics() {
+    }
+
+    static void register() {
+        JsonUserType.addListener(instance);
+    }
+
+    /**
+     * @param factory  entity manager factory of a provider
+     * @param unitName name of the metrics of the provider
+     */
+    static void bind(EntityManagerFactory factory, String unitName) {
+        instance.factories.put(factory.unwrap(SessionFactoryImplementor.class), Metrics.json(unitName));
+    }
+
+    /**
+     * @param factory entity manager factory of a provider, before it is closed
+     */
+    static void unbind(EntityManagerFactory factory) {
+        instance.factories.remove(factory.unwrap(SessionFactoryImplementor.class));
+    }
+
+    private JsonMetrics metrics(SessionFactoryImplementor factory) {
+        if (factory == null) {
+            return Metrics.json(Metrics.DEFAULT_UNIT_NAME);
+        }
+        JsonMetrics metrics = factories.get(factory);
+        if (metrics != null) {
+            return metrics;
+        }
+        // Factory without a provider, by its persistence unit, not held as it is never unbound
+        return Metrics.json(Metrics.unitName(factory.getProperties()));
+    }
+
+    @Override
+    public void read(SessionFactoryImplementor factory, int bytes) {
+        TransactionDiagnostics.jsonRead(bytes);
+        if (Metrics.isEnabled()) {
+            metrics(factory).read(bytes);
+        }
+    }
+
+    @Override
+    public void parsed(SessionFactoryImplementor factory, long nanos) {
+        if (Metrics.isEnabled()) {
+            metrics(factory).parsed(nanos);
+        }
+    }
+
+    @Override
+    public void written(SessionFactoryImplementor factory, int bytes) {
+        if (Metrics.isEnabled()) {
+            metrics(factory).write(bytes);
+        }
+    }
+
+    @Override
+    public void serialized(SessionFactoryImplementor factory, long nanos) {
+        if (Metrics.isEnabled()) {
+            metrics(factory).serialized(nanos);
+        }
+    }
+}
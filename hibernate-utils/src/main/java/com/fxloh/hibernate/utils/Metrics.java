@@ -0,0 +1,185 @@
+package com.fxloh.hibernate.utils;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.persistence.EntityManagerFactory;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of transaction and jsonb metrics, enabled by default
+ * Metrics are registered as MBeans under com.fxloh.hibernate.utils,
+ * type=TransactionMetrics,unit=&lt;persistence unit&gt; and type=JsonMetrics,unit=&lt;persistence unit&gt;
+ * Jsonb metrics are recorded if the jsonb module is on the classpath, registered as the JsonUserType listener
+ * <p>
+ * Created by: Fuxing
+ * Date: 19/10/2026
+ * Time: 1:10 AM
+ * Project: hibernate-utils
+ */
+public final class Metrics {
+    public static final String JMX_DOMAIN = "com.fxloh.hibernate.utils";
+
+    static final String DEFAULT_UNIT_NAME = "default";
+    private static final String PERSISTENCE_UNIT_NAME = "hibernate.ejb.persistenceUnitName";
+    private static final String JSON_USER_TYPE = "org.hibernate.usertype.JsonUserType";
+
+    private static final ConcurrentMap<String, TransactionMetrics> transactions = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, JsonMetrics> jsons = new ConcurrentHashMap<>();
+    private static final boolean jsonType = isPresent(JSON_USER_TYPE);
+
+    private static volatile boolean enabled = true;
+    private static volatile MetricsListener[] listeners = new MetricsListener[0];
+
+    static {
+        for (MetricsListener listener : ServiceLoader.load(MetricsListener.class)) {
+            addListener(listener);
+        }
+        if (jsonType) {
+            JsonTypeMetrics.register();
+        }
+    }
+
+    private Metrics() {/* NOT Suppose to init */}
+
+    /**
+     * @return true if metrics are recorded
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Disabled metrics cost a volatile read per recording
+     *
+     * @param enabled false to stop recording metrics and calling listeners
+     */
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * @param listener listener to call on every recording
+     */
+    public static synchronized void addListener(MetricsListener listener) {
+        MetricsListener[] added = Arrays.copyOf(listeners, listeners.length + 1);
+        added[listeners.length] = listener;
+        listeners = added;
+    }
+
+    /**
+     * @param listener listener to remove
+     */
+    public static synchronized void removeListener(MetricsListener listener) {
+        listeners = Arrays.stream(listeners)
+                .filter(existing -> existing != listener)
+                .toArray(MetricsListener[]::new);
+    }
+
+    /**
+     * @return registered listeners, iterated without allocation
+     */
+    static MetricsListener[] listeners() {
+        return listeners;
+    }
+
+    /**
+     * @param unitName persistence unit name
+     * @return jsonb metrics of JsonUserType of unit, created and registered on first use
+     */
+    public static JsonMetrics json(String unitName) {
+        JsonMetrics metrics = jsons.get(unitName);
+        if (metrics != null) {
+            return metrics;
+        }
+        return jsons.computeIfAbsent(unitName, name -> {
+            JsonMetrics created = new JsonMetrics(name);
+            register(created, "type=JsonMetrics,unit=" + ObjectName.quote(name));
+            return created;
+        });
+    }
+
+    /**
+     * Record jsonb values of factory under the metrics of unit name
+     *
+     * @param factory  entity manager factory of a provider
+     * @param unitName name of the metrics of the provider
+     */
+    static void bind(EntityManagerFactory factory, String unitName) {
+        if (jsonType) {
+            JsonTypeMetrics.bind(factory, unitName);
+        }
+    }
+
+    /**
+     * @param factory entity manager factory of a provider, before it is closed
+     */
+    static void unbind(EntityManagerFactory factory) {
+        if (jsonType) {
+            JsonTypeMetrics.unbind(factory);
+        }
+    }
+
+    /**
+     * @param unitName persistence unit name
+     * @return transaction metrics of unit, created and registered on first use
+     */
+    public static TransactionMetrics transaction(String unitName) {
+        TransactionMetrics metrics = transactions.get(unitName);
+        if (metrics != null) {
+            return metrics;
+        }
+        return transactions.computeIfAbsent(unitName, name -> {
+            TransactionMetrics created = new TransactionMetrics(name);
+            register(created, "type=TransactionMetrics,unit=" + ObjectName.quote(name));
+            return created;
+        });
+    }
+
+    /**
+     * @param factory entity manager factory
+     * @return persistence unit name of factory, "default" if unnamed
+     */
+    public static String unitName(EntityManagerFactory factory) {
+        return unitName(factory.getProperties());
+    }
+
+    /**
+     * @param properties properties of a factory
+     * @return persistence unit name in properties, "default" if unnamed
+     */
+    static String unitName(Map<?, ?> properties) {
+        Object name = properties.get(PERSISTENCE_UNIT_NAME);
+        return name == null ? DEFAULT_UNIT_NAME : name.toString();
+    }
+
+    private static boolean isPresent(String className) {
+        try {
+            Class.forName(className, false, Metrics.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Register MBean, replacing a previous registration of the name, e.g. from another class loader
+     * Metrics are still recorded if the MBean server is unavailable
+     */
+    private static void register(Object mbean, String properties) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(JMX_DOMAIN + ":" + properties);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(mbean, name);
+        } catch (JMException | SecurityException ignored) {
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.fxloh.hibernate.utils;
+
+/**
+ * Listener SPI of recorded metrics, e.g. to forward to another metrics library
+ * Called synchronously on the hot path of the transaction or jsonb value, must not block
+ * Registered with Metrics.addListener or discovered with ServiceLoader from
+ * META-INF/services/com.fxloh.hibernate.utils.MetricsListener
+ * <p>
+ * Created by: Fuxing
+ * Date: 19/10/2026
+ * Time: 12:40 AM
+ * Project: hibernate-utils
+ */
+public interface MetricsListener {
+
+    /**
+     * @param unitName         persistence unit name of the provider
+     * @param acquireNanos     nanos to create the entity manager and begin, including connection wait
+     * @param transactionNanos nanos of the whole attempt, from create to commit or rollback
+     * @param committed        true if committed, false if rolled back
+     */
+    default void transaction(String unitName, long acquireNanos, long transactionNanos, boolean committed) {
+    }
+
+    /**
+     * @param unitName persistence unit name of the provider
+     * @param attempt  failed attempt, starting from 1
+     */
+    default void retry(String unitName, int attempt) {
+    }
+
+    /**
+     * @param unitName persistence unit name of the value
+     * @param bytes    jsonb bytes read from a result set
+     */
+    default void jsonRead(String unitName, int bytes) {
+    }
+
+    /**
+     * @param unitName persistence unit name of the value
+     * @param nanos    nanos to parse a jsonb value, deferred until first access for lazy values
+     */
+    default void jsonParse(String unitName, long nanos) {
+    }
+
+    /**
+     * @param unitName persistence unit name of the value
+     * @param bytes    UTF-8 jsonb bytes bound to a statement
+     */
+    default void jsonWrite(String unitName, int bytes) {
+    }
+
+    /**
+     * @param unitName persistence unit name of the value
+     * @param nanos    nanos to serialize a jsonb value
+     */
+    default void jsonSerialize(String unitName, long nanos) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.fxloh.hibernate.utils;
+
+/**
+ * Propagation of a transaction run inside another transaction of the same factory on the same thread
+ * <p>
+ * Created by: Fuxing
+ * Date: 19/10/2026
+ * Time: 3:00 AM
+ * Project: hibernate-utils
+ */
+public enum Propagation {
+
+    /**
+     * Join the current transaction with its entity manager, else start a new one, default
+     * A failure of a joined transaction marks the current transaction rollback only
+     */
+    REQUIRED,
+
+    /**
+     * Always start a new transaction with a new entity manager and connection,
+     * the current transaction is suspended until it completes
+     */
+    REQUIRES_NEW,
+
+    /**
+     * Join the current transaction, TransactionRequiredException if there is none
+     */
+    MANDATORY
+}
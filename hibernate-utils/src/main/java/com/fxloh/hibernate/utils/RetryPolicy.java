@@ -0,0 +1,113 @@
+package com.fxloh.hibernate.utils;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry policy of TransactionProvider for transactions failing with a retryable SQLState
+ * Each attempt runs the transaction lambda again with a fresh EntityManager,
+ * attempts are delayed by exponential backoff with full jitter
+ * <p>
+ * Created by: Fuxing
+ * Date: 18/10/2026
+ * Time: 11:20 PM
+ * Project: hibernate-utils
+ */
+public final class RetryPolicy {
+
+    /**
+     * serialization_failure and deadlock_detected
+     */
+    public static final Set<String> DEFAULT_SQL_STATES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("40001", "40P01")));
+
+    /**
+     * Single attempt, default of TransactionProvider
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    private final int maxAttempts;
+    private final long initialBackoff;
+    private final long maxBackoff;
+    private final Set<String> sqlStates;
+
+    /**
+     * Retry serialization failures and deadlocks
+     *
+     * @param maxAttempts    maximum number of attempts, including the first
+     * @param initialBackoff maximum delay in millis before the second attempt, doubled every attempt
+     * @param maxBackoff     maximum delay in millis of any attempt
+     */
+    public RetryPolicy(int maxAttempts, long initialBackoff, long maxBackoff) {
+        this(maxAttempts, initialBackoff, maxBackoff, DEFAULT_SQL_STATES);
+    }
+
+    /**
+     * @param maxAttempts    maximum number of attempts, including the first
+     * @param initialBackoff maximum delay in millis before the second attempt, doubled every attempt
+     * @param maxBackoff     maximum delay in millis of any attempt
+     * @param sqlStates      retryable SQLStates
+     */
+    public RetryPolicy(int maxAttempts, long initialBackoff, long maxBackoff, Set<String> sqlStates) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be positive");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.sqlStates = sqlStates;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @param throwable exception thrown by a transaction
+     * @return true if throwable is caused by a SQLException with a retryable SQLState
+     */
+    public boolean isRetryable(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                for (SQLException next = (SQLException) cause; next != null; next = next.getNextException()) {
+                    if (sqlStates.contains(next.getSQLState())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param attempt failed attempt, starting from 1
+     * @return random delay in millis before the next attempt, up to initialBackoff * 2^(attempt - 1)
+     */
+    public long backoff(int attempt) {
+        long ceiling = Math.min(maxBackoff, initialBackoff << Math.min(attempt - 1, 30));
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Waits the backoff if the attempt should be retried
+     *
+     * @param exception exception of the failed attempt
+     * @param attempt   failed attempt, starting from 1
+     * @return true if the transaction should be attempted again
+     */
+    boolean retry(Exception exception, int attempt) {
+        if (attempt >= maxAttempts || !isRetryable(exception)) {
+            return false;
+        }
+        try {
+            Thread.sleep(backoff(attempt));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
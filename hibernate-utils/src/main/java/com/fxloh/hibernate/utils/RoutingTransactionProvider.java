@@ -0,0 +1,207 @@
+package com.fxloh.hibernate.utils;
+
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Transaction provider routing read only transactions to replicas
+ * Transactions that may write run on the primary, read and scroll are load balanced round robin across open replicas
+ * <p>
+ * Replicas lag behind the primary, with a read your writes window, a thread that committed a write on the primary
+ * within the window reads from the primary. Writes are tracked per thread, writes of async transactions
+ * are not seen by the calling thread, use reduce to read from the primary explicitly.
+ * <p>
+ * A new transaction that may write wrote if postgres assigned it a transaction id, checked after the flush of commit,
+ * this costs one more round trip per commit on the primary, read only transactions are not checked.
+ * Before PostgreSQL 10, every committed transaction that may write counts as a write without the check.
+ * <p>
+ * Created by: Fuxing
+ * Date: 18/10/2026
+ * Time: 11:50 PM
+ * Project: hibernate-utils
+ */
+public class RoutingTransactionProvider extends TransactionProvider {
+
+    private final List<TransactionProvider> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final long readYourWritesNanos;
+    private final boolean assignedTransactionId;
+    private final ThreadLocal<Long> lastWrite = new ThreadLocal<>();
+
+    /**
+     * @param primary  factory of the primary, for all transactions that may write
+     * @param replicas factories of the replicas, for read only transactions
+     */
+    public RoutingTransactionProvider(EntityManagerFactory primary, List<EntityManagerFactory> replicas) {
+        this(primary, replicas, 0);
+    }
+
+    /**
+     * @param primary              factory of the primary, for all transactions that may write
+     * @param replicas             factories of the replicas, for read only transactions
+     * @param readYourWritesMillis millis after a write the writing thread reads from the primary, 0 to disable
+     */
+    public RoutingTransactionProvider(EntityManagerFactory primary, List<EntityManagerFactory> replicas, long readYourWritesMillis) {
+        super(primary);
+        List<TransactionProvider> providers = new ArrayList<>();
+        for (EntityManagerFactory replica : replicas) {
+            TransactionProvider provider = new TransactionProvider(replica);
+            // Replicas of the same unit are measured apart from the primary
+            provider.name(Metrics.unitName(replica) + "-replica-" + providers.size());
+            providers.add(provider);
+        }
+        this.replicas = Collections.unmodifiableList(providers);
+        this.readYourWritesNanos = TimeUnit.MILLISECONDS.toNanos(readYourWritesMillis);
+        this.assignedTransactionId = readYourWritesNanos > 0 && majorVersion(primary) >= 10;
+    }
+
+    /**
+     * @return major version of the database of the factory
+     */
+    private static int majorVersion(EntityManagerFactory factory) {
+        EntityManager entityManager = factory.createEntityManager();
+        try {
+            return entityManager.unwrap(Session.class).doReturningWork(connection ->
+                    connection.getMetaData().getDatabaseMajorVersion());
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * @return providers of the replica factories
+     */
+    public List<TransactionProvider> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        super.setRetryPolicy(retryPolicy);
+        for (TransactionProvider replica : replicas) {
+            replica.setRetryPolicy(retryPolicy);
+        }
+    }
+
+    @Override
+    public void setDiagnostics(TransactionDiagnostics diagnostics) {
+        super.setDiagnostics(diagnostics);
+        for (TransactionProvider replica : replicas) {
+            replica.setDiagnostics(diagnostics);
+        }
+    }
+
+    /**
+     * Close the primary and replica factories
+     */
+    @Override
+    public void close() {
+        for (TransactionProvider replica : replicas) {
+            if (replica.isOpen()) replica.close();
+        }
+        super.close();
+    }
+
+    /**
+     * Run JPA style read only transaction on a replica,
+     * on the primary if there is no open replica or this thread wrote within the read your writes window
+     * Inside a current transaction of the primary, joins it
+     *
+     * @see TransactionProvider#read(ReduceTransaction)
+     */
+    @Override
+    public <T> T read(ReduceTransaction<T> reduceTransaction, TransactionError error) {
+        TransactionProvider replica = getCurrentEntityManager() == null ? route() : null;
+        if (replica == null) {
+            return super.read(reduceTransaction, error);
+        }
+        return replica.read(reduceTransaction, error);
+    }
+
+    /**
+     * Stream results of a query from a replica,
+     * from the primary if there is no open replica or this thread wrote within the read your writes window
+     *
+     * @see TransactionProvider#scroll(ScrollTransaction, int, Consumer)
+     */
+    @Override
+    public <T> long scroll(ScrollTransaction scrollTransaction, int fetchSize, Consumer<T> consumer, TransactionError error) {
+        TransactionProvider replica = route();
+        if (replica == null) {
+            return super.scroll(scrollTransaction, fetchSize, consumer, error);
+        }
+        return replica.scroll(scrollTransaction, fetchSize, consumer, error);
+    }
+
+    /**
+     * @return provider of the next open replica, null for the primary if none or within the read your writes window
+     */
+    private TransactionProvider route() {
+        if (readYourWritesNanos > 0) {
+            Long written = lastWrite.get();
+            if (written != null) {
+                if (System.nanoTime() - written < readYourWritesNanos) {
+                    return null;
+                }
+                lastWrite.remove();
+            }
+        }
+
+        int size = replicas.size();
+        int start = next.getAndIncrement();
+        for (int i = 0; i < size; i++) {
+            TransactionProvider replica = replicas.get(Math.floorMod(start + i, size));
+            if (replica.isOpen()) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Track new transactions of the primary that may write, with a read your writes window
+     * a transaction that committed with a transaction id wrote
+     */
+    @Override
+    void started(EntityManager entityManager, boolean readOnly) {
+        if (readYourWritesNanos == 0 || readOnly) return;
+
+        Session session = entityManager.unwrap(Session.class);
+        session.getTransaction().registerSynchronization(new Synchronization() {
+            private boolean wrote = true;
+
+            @Override
+            public void beforeCompletion() {
+                if (!assignedTransactionId) return;
+
+                // Runs after the flush of commit, an id is only assigned to a transaction that wrote
+                wrote = session.doReturningWork(connection -> {
+                    try (Statement statement = connection.createStatement();
+                         ResultSet resultSet = statement.executeQuery("SELECT txid_current_if_assigned() IS NOT NULL")) {
+                        return resultSet.next() && resultSet.getBoolean(1);
+                    }
+                });
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (wrote && status == Status.STATUS_COMMITTED) {
+                    lastWrite.set(System.nanoTime());
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,36 @@
+package com.fxloh.hibernate.utils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.function.Function;
+
+/**
+ * Functional scroll Transaction, creates the query to scroll
+ * <p>
+ * Created by: Fuxing
+ * Date: 18/10/2026
+ * Time: 9:30 PM
+ * Project: hibernate-utils
+ */
+@FunctionalInterface
+public interface ScrollTransaction extends Function<EntityManager, Query>, TransactionError {
+
+    /**
+     * Results are read-only and detached once processed
+     *
+     * @param em provided entity manager
+     * @return query to scroll
+     */
+    Query apply(EntityManager em);
+
+    /**
+     * Default error handling
+     *
+     * @param e exception
+     * @return boolean if error is handled and should not be thrown
+     */
+    default boolean error(Exception e) {
+        return true;
+    }
+
+}
@@ -0,0 +1,242 @@
+package com.fxloh.hibernate.utils;
+
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.Session;
+import org.hibernate.stat.SessionStatistics;
+import org.jboss.logging.Logger;
+
+import javax.persistence.EntityManager;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Diagnostics of TransactionProvider, reports every transaction attempt with its prepared statements, entities,
+ * jsonb bytes and wall time, and flags attempts over a threshold or repeating a statement, e.g. N+1 selects
+ * <p>
+ * Statements are counted as prepared per session, a JDBC batch is prepared once for all its executes.
+ * Repeated statements need their SQL from DiagnosticsStatementInspector configured as
+ * hibernate.session_factory.statement_inspector.
+ * Entities are counted from SessionStatistics before completion, transactions clearing the
+ * persistence context (batch, scroll) only count the last entities.
+ * The caller site is resolved from the stack only for flagged attempts.
+ * <p>
+ * Created by: Fuxing
+ * Date: 19/10/2026
+ * Time: 2:10 AM
+ * Project: hibernate-utils
+ */
+public final class TransactionDiagnostics {
+    private static final Logger logger = Logger.getLogger(TransactionDiagnostics.class);
+
+    /**
+     * Log flagged reports as warning, others as debug
+     */
+    public static final Consumer<TransactionReport> LOG = report -> {
+        if (report.isFlagged()) {
+            logger.warn(report);
+        } else if (logger.isDebugEnabled()) {
+            logger.debug(report);
+        }
+    };
+
+    private static final int MAX_DISTINCT_STATEMENTS = 1000;
+    private static final ThreadLocal<Context> current = new ThreadLocal<>();
+
+    /**
+     * Diagnosed transactions running on any thread, statements and jsonb reads skip the thread local while 0
+     */
+    private static final AtomicInteger active = new AtomicInteger();
+
+    private final int maxPrepares;
+    private final int maxRepeats;
+    private final int maxEntities;
+    private final long maxJsonBytes;
+    private final long maxMillis;
+    private final Consumer<TransactionReport> reporter;
+
+    /**
+     * 50 prepares, 10 repeats, 1000 entities, 16MB of jsonb, 1 second, logged
+     */
+    public TransactionDiagnostics() {
+        this(50, 10, 1000, 16 * 1024 * 1024, 1000);
+    }
+
+    /**
+     * Thresholds of 0 or less are never exceeded, flagged reports are logged
+     *
+     * @param maxPrepares  maximum statements prepared in a transaction
+     * @param maxRepeats   maximum prepares of the same statement
+     * @param maxEntities  maximum entities in the persistence context
+     * @param maxJsonBytes maximum jsonb bytes loaded
+     * @param maxMillis    maximum wall time in millis
+     */
+    public TransactionDiagnostics(int maxPrepares, int maxRepeats, int maxEntities, long maxJsonBytes, long maxMillis) {
+        this(maxPrepares, maxRepeats, maxEntities, maxJsonBytes, maxMillis, LOG);
+    }
+
+    /**
+     * @param maxPrepares  maximum statements prepared in a transaction
+     * @param maxRepeats   maximum prepares of the same statement
+     * @param maxEntities  maximum entities in the persistence context
+     * @param maxJsonBytes maximum jsonb bytes loaded
+     * @param maxMillis    maximum wall time in millis
+     * @param reporter     consumer of every report, called on the transaction thread
+     */
+    public TransactionDiagnostics(int maxPrepares, int maxRepeats, int maxEntities, long maxJsonBytes, long maxMillis,
+                                  Consumer<TransactionReport> reporter) {
+        this.maxPrepares = maxPrepares;
+        this.maxRepeats = maxRepeats;
+        this.maxEntities = maxEntities;
+        this.maxJsonBytes = maxJsonBytes;
+        this.maxMillis = maxMillis;
+        this.reporter = reporter;
+    }
+
+    /**
+     * Start diagnosing the entity manager on this thread, before its transaction begins
+     *
+     * @param entityManager created entity manager
+     * @param lambda        transaction lambda, reported as the site if the caller is unknown
+     * @return context to end
+     */
+    Context begin(EntityManager entityManager, Object lambda) {
+        Context context = new Context(entityManager.unwrap(Session.class), lambda, current.get());
+        context.session.addEventListeners(context);
+        current.set(context);
+        active.incrementAndGet();
+        return context;
+    }
+
+    /**
+     * Stop diagnosing and report, before the entity manager is closed
+     *
+     * @param context context of begin
+     */
+    void end(Context context) {
+        active.decrementAndGet();
+        if (context.previous == null) {
+            current.remove();
+        } else {
+            current.set(context.previous);
+        }
+
+        long millis = (System.nanoTime() - context.start) / 1_000_000;
+        StringBuilder violations = new StringBuilder();
+        exceeds(violations, "prepares", context.prepares, maxPrepares);
+        exceeds(violations, "repeats", context.repeats, maxRepeats);
+        exceeds(violations, "entities", context.entities, maxEntities);
+        exceeds(violations, "jsonBytes", context.jsonBytes, maxJsonBytes);
+        exceeds(violations, "millis", millis, maxMillis);
+
+        String violation = violations.length() == 0 ? null : violations.toString();
+        String site = violation == null ? null : site(context.lambda);
+        reporter.accept(new TransactionReport(site, millis, context.prepares, context.repeatedStatement,
+                context.repeats, context.entities, context.collections, context.jsonBytes, context.committed, violation));
+    }
+
+    private static void exceeds(StringBuilder violations, String name, long value, long max) {
+        if (max > 0 && value > max) {
+            if (violations.length() > 0) violations.append(", ");
+            violations.append(name).append(" > ").append(max);
+        }
+    }
+
+    /**
+     * @param sql statement prepared on this thread
+     */
+    static void statement(String sql) {
+        if (active.get() == 0) return;
+        Context context = current.get();
+        if (context != null) {
+            context.statement(sql);
+        }
+    }
+
+    /**
+     * @param bytes jsonb bytes loaded on this thread
+     */
+    static void jsonRead(int bytes) {
+        if (active.get() == 0) return;
+        Context context = current.get();
+        if (context != null) {
+            context.jsonBytes += bytes;
+        }
+    }
+
+    /**
+     * @param lambda transaction lambda
+     * @return first frame outside of this package and the jdk, else the class declaring lambda
+     */
+    static String site(Object lambda) {
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            String className = element.getClassName();
+            if (!className.startsWith(TransactionDiagnostics.class.getPackage().getName() + ".")
+                    && !className.startsWith("java.") && !className.startsWith("sun.")) {
+                return element.toString();
+            }
+        }
+        String className = lambda.getClass().getName();
+        int index = className.indexOf("$$Lambda");
+        return index == -1 ? className : className.substring(0, index);
+    }
+
+    /**
+     * Counters of an attempt, confined to the transaction thread
+     */
+    static final class Context extends BaseSessionEventListener {
+        private final Session session;
+        private final Object lambda;
+        private final Context previous;
+        private final long start = System.nanoTime();
+
+        private final Map<String, Integer> executions = new HashMap<>();
+        private int prepares;
+        private String repeatedStatement;
+        private int repeats;
+        private int entities;
+        private int collections;
+        private long jsonBytes;
+        private boolean committed;
+
+        private Context(Session session, Object lambda, Context previous) {
+            this.session = session;
+            this.lambda = lambda;
+            this.previous = previous;
+        }
+
+        @Override
+        public void jdbcPrepareStatementStart() {
+            prepares++;
+        }
+
+        private void statement(String sql) {
+            Integer count = executions.get(sql);
+            if (count == null && executions.size() >= MAX_DISTINCT_STATEMENTS) {
+                return;
+            }
+            count = count == null ? 1 : count + 1;
+            executions.put(sql, count);
+            if (count > repeats) {
+                repeats = count;
+                repeatedStatement = sql;
+            }
+        }
+
+        /**
+         * Count entities before commit or rollback, rollback clears the persistence context
+         */
+        void beforeCompletion() {
+            if (session.isOpen()) {
+                SessionStatistics statistics = session.getStatistics();
+                entities = Math.max(entities, statistics.getEntityCount());
+                collections = Math.max(collections, statistics.getCollectionCount());
+            }
+        }
+
+        void committed() {
+            committed = true;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.fxloh.hibernate.utils;
+
+import javax.persistence.EntityManagerFactory;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for async transactions, bounded so that transactions never wait on the connection pool
+ * <p>
+ * Created by: Fuxing
+ * Date: 18/10/2026
+ * Time: 10:40 PM
+ * Project: hibernate-utils
+ */
+public final class TransactionExecutors {
+
+    /**
+     * Pool size properties in order of lookup, hikari default if none is set
+     */
+    private static final String[] POOL_SIZE_PROPERTIES = {
+            "hibernate.hikari.maximumPoolSize",
+            "hibernate.c3p0.max_size",
+            "hibernate.connection.pool_size"
+    };
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    private TransactionExecutors() {/* NOT Suppose to init */}
+
+    /**
+     * @param factory entity manager factory
+     * @return configured connection pool size of factory, 10 if not configured
+     */
+    public static int poolSize(EntityManagerFactory factory) {
+        Map<String, Object> properties = factory.getProperties();
+        for (String key : POOL_SIZE_PROPERTIES) {
+            Object value = properties.get(key);
+            if (value != null) {
+                return Integer.parseInt(value.toString().trim());
+            }
+        }
+        return DEFAULT_POOL_SIZE;
+    }
+
+    /**
+     * Bounded executor queuing up to threads transactions
+     *
+     * @param threads maximum concurrent transactions
+     * @return fixed size executor with a bounded queue
+     * @see #bounded(int, int)
+     */
+    public static ExecutorService bounded(int threads) {
+        return bounded(threads, threads);
+    }
+
+    /**
+     * Daemon platform threads, idle threads are released after 60 seconds
+     * Submitting to a full queue blocks the caller until a transaction completes, instead of running it on the
+     * caller thread, so no more than threads transactions ever hold a connection
+     *
+     * @param threads   maximum concurrent transactions
+     * @param queueSize maximum transactions waiting for a thread
+     * @return fixed size executor with a bounded queue, rejects transactions once shut down
+     */
+    public static ExecutorService bounded(int threads, int queueSize) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable, "transaction-provider-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, (runnable, pool) -> {
+            if (pool.isShutdown()) {
+                throw new RejectedExecutionException("Transaction executor is shut down");
+            }
+            try {
+                pool.getQueue().put(runnable);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted waiting for the transaction executor", e);
+            }
+            // Shut down while waiting, queued transaction may never run
+            if (pool.isShutdown() && pool.remove(runnable)) {
+                throw new RejectedExecutionException("Transaction executor is shut down");
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * @return true if the JVM supports virtual threads (Java 21+)
+     */
+    public static boolean isVirtualThreadSupported() {
+        return virtualThreadFactory() != null;
+    }
+
+    /**
+     * Virtual thread per transaction, at most permits run concurrently
+     * Waiting for a permit parks a virtual thread, not a platform thread
+     * Falls back to bounded platform threads if virtual threads are not supported
+     *
+     * @param permits maximum concurrent transactions
+     * @return virtual thread executor if supported, else bounded executor
+     */
+    public static Executor virtual(int permits) {
+        Method factory = virtualThreadFactory();
+        if (factory == null) {
+            return bounded(permits);
+        }
+
+        final ExecutorService virtual;
+        try {
+            virtual = (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return bounded(permits);
+        }
+
+        final Semaphore semaphore = new Semaphore(permits);
+        return command -> virtual.execute(() -> {
+            semaphore.acquireUninterruptibly();
+            try {
+                command.run();
+            } finally {
+                semaphore.release();
+            }
+        });
+    }
+
+    private static Method virtualThreadFactory() {
+        try {
+            return java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
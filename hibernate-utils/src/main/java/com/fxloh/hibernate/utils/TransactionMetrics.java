@@ -0,0 +1,144 @@
+package com.fxloh.hibernate.utils;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transaction metrics of a persistence unit, shared by all providers of the unit
+ * Acquire is the time to create the entity manager and begin, which waits for a pooled connection,
+ * transaction is the time of an attempt from create to commit or rollback
+ * <p>
+ * Created by: Fuxing
+ * Date: 19/10/2026
+ * Time: 12:50 AM
+ * Project: hibernate-utils
+ */
+public final class TransactionMetrics implements TransactionMetricsMBean {
+
+    private final String unitName;
+
+    private final LatencyHistogram acquire = new LatencyHistogram();
+    private final LatencyHistogram transaction = new LatencyHistogram();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder rollbacks = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    TransactionMetrics(String unitName) {
+        this.unitName = unitName;
+    }
+
+    /**
+     * @return persistence unit name
+     */
+    public String getUnitName() {
+        return unitName;
+    }
+
+    /**
+     * @return histogram of acquire nanos
+     */
+    public LatencyHistogram getAcquire() {
+        return acquire;
+    }
+
+    /**
+     * @return histogram of transaction nanos
+     */
+    public LatencyHistogram getTransaction() {
+        return transaction;
+    }
+
+    /**
+     * @param start     System.nanoTime before the entity manager is created
+     * @param begun     System.nanoTime after the transaction began
+     * @param committed true if committed, false if rolled back
+     */
+    void record(long start, long begun, boolean committed) {
+        if (!Metrics.isEnabled()) return;
+
+        long acquireNanos = begun - start;
+        long transactionNanos = System.nanoTime() - start;
+        acquire.record(acquireNanos);
+        transaction.record(transactionNanos);
+        (committed ? commits : rollbacks).increment();
+
+        for (MetricsListener listener : Metrics.listeners()) {
+            listener.transaction(unitName, acquireNanos, transactionNanos, committed);
+        }
+    }
+
+    /**
+     * @param attempt failed attempt, starting from 1
+     */
+    void retry(int attempt) {
+        if (!Metrics.isEnabled()) return;
+
+        retries.increment();
+        for (MetricsListener listener : Metrics.listeners()) {
+            listener.retry(unitName, attempt);
+        }
+    }
+
+    @Override
+    public long getCommits() {
+        return commits.sum();
+    }
+
+    @Override
+    public long getRollbacks() {
+        return rollbacks.sum();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    @Override
+    public double getAcquireMeanMillis() {
+        return LatencyHistogram.millis(acquire.getMean());
+    }
+
+    @Override
+    public double getAcquireP99Millis() {
+        return LatencyHistogram.millis(acquire.getPercentile(99));
+    }
+
+    @Override
+    public double getAcquireMaxMillis() {
+        return LatencyHistogram.millis(acquire.getMax());
+    }
+
+    @Override
+    public double getTransactionMeanMillis() {
+        return LatencyHistogram.millis(transaction.getMean());
+    }
+
+    @Override
+    public double getTransactionP50Millis() {
+        return LatencyHistogram.millis(transaction.getPercentile(50));
+    }
+
+    @Override
+    public double getTransactionP99Millis() {
+        return LatencyHistogram.millis(transaction.getPercentile(99));
+    }
+
+    @Override
+    public double getTransactionP999Millis() {
+        return LatencyHistogram.millis(transaction.getPercentile(99.9));
+    }
+
+    @Override
+    public double getTransactionMaxMillis() {
+        return LatencyHistogram.millis(transaction.getMax());
+    }
+
+    @Override
+    public void reset() {
+        acquire.reset();
+        transaction.reset();
+        commits.reset();
+        rollbacks.reset();
+        retries.reset();
+    }
+}
@@ -0,0 +1,36 @@
+package com.fxloh.hibernate.utils;
+
+/**
+ * JMX view of TransactionMetrics, latencies in millis
+ * <p>
+ * Created by: Fuxing
+ * Date: 19/10/2026
+ * Time: 12:50 AM
+ * Project: hibernate-utils
+ */
+public interface TransactionMetricsMBean {
+
+    long getCommits();
+
+    long getRollbacks();
+
+    long getRetries();
+
+    double getAcquireMeanMillis();
+
+    double getAcquireP99Millis();
+
+    double getAcquireMaxMillis();
+
+    double getTransactionMeanMillis();
+
+    double getTransactionP50Millis();
+
+    double getTransactionP99Millis();
+
+    double getTransactionP999Millis();
+
+    double getTransactionMaxMillis();
+
+    void reset();
+}
@@ -1,12 +1,27 @@
 
 package com.fxloh.hibernate.utils;
 
+import org.hibernate.CacheMode;
+import org.hibernate.FlushMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.TransactionRequiredException;
+import java.sql.Statement;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
 
 /**
  * Transaction provider to run lambda function in JPA style
+ * Transactions run inside another transaction of the same factory on the same thread join it by default
  * <p>
  * Created by Fuxing
  * Date: 8/7/2015
@@ -15,13 +30,44 @@ import java.util.Optional;
  */
 public class TransactionProvider {
 
+    /**
+     * Current transaction by factory, of this thread
+     */
+    private static final ThreadLocal<Map<EntityManagerFactory, Current>> currentEntityManagers =
+            ThreadLocal.withInitial(IdentityHashMap::new);
+
     private EntityManagerFactory factory;
+    private volatile Executor executor;
+    private ExecutorService defaultExecutor;
+    private volatile RetryPolicy retryPolicy = RetryPolicy.NONE;
+    TransactionMetrics metrics;
+    private volatile TransactionDiagnostics diagnostics;
 
     /**
      * @param factory for provider to create entity manager
      */
     public TransactionProvider(EntityManagerFactory factory) {
         this.factory = factory;
+        name(Metrics.unitName(factory));
+    }
+
+    /**
+     * @param factory  for provider to create entity manager
+     * @param executor executor of async transactions
+     * @see TransactionExecutors
+     */
+    public TransactionProvider(EntityManagerFactory factory, Executor executor) {
+        this.factory = factory;
+        this.executor = executor;
+        name(Metrics.unitName(factory));
+    }
+
+    /**
+     * @param unitName name of the transaction and jsonb metrics of this provider
+     */
+    void name(String unitName) {
+        this.metrics = Metrics.transaction(unitName);
+        Metrics.bind(factory, unitName);
     }
 
     /**
@@ -31,6 +77,83 @@ public class TransactionProvider {
         return factory;
     }
 
+    /**
+     * Default executor is bounded to the connection pool size of the factory, shut down on close
+     *
+     * @return executor of async transactions
+     */
+    public Executor getExecutor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    defaultExecutor = TransactionExecutors.bounded(TransactionExecutors.poolSize(factory));
+                    executor = defaultExecutor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * @return retry policy of transactions, RetryPolicy.NONE by default
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Transaction lambdas are run again on a retryable failure, they must be safe to repeat
+     * batch, copy and scroll consume their items or results, they are never retried
+     *
+     * @param retryPolicy retry policy of transactions
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Close the factory of this provider and shut down its default executor,
+     * an executor given to the provider is left to its owner
+     */
+    public void close() {
+        synchronized (this) {
+            if (defaultExecutor != null) {
+                defaultExecutor.shutdown();
+            }
+        }
+        Metrics.unbind(getFactory());
+        getFactory().close();
+    }
+
+    /**
+     * @return transaction metrics of the persistence unit of this provider
+     */
+    public TransactionMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return diagnostics of transactions, null if disabled (default)
+     */
+    public TransactionDiagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * @param diagnostics diagnostics of transactions, null to disable
+     */
+    public void setDiagnostics(TransactionDiagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * @return entity manager of the current transaction of this thread, null if none
+     */
+    public EntityManager getCurrentEntityManager() {
+        Current current = currentEntityManagers.get().get(factory);
+        return current == null ? null : current.entityManager;
+    }
+
     /**
      * @return boolean indicating whether the provider is open
      */
@@ -54,26 +177,31 @@ public class TransactionProvider {
      * @param error       error lambda to run if error is thrown
      */
     public void with(Transaction transaction, TransactionError error) {
-        // Create and start
-        EntityManager entityManager = factory.createEntityManager();
-        try {
-            entityManager.getTransaction().begin();
-            // Run
-            transaction.accept(entityManager);
-            // Close
-            entityManager.getTransaction().commit();
-        } catch (Exception e) {
-            if (entityManager.getTransaction().isActive()) {
-                entityManager.getTransaction().rollback();
-            }
+        with(Propagation.REQUIRED, transaction, error);
+    }
 
-            // Transaction Error
-            if (error.error(e)) {
-                throw e;
-            }
-        } finally {
-            entityManager.close();
-        }
+    /**
+     * Run JPA style transaction in lambda
+     *
+     * @param propagation propagation if there is a current transaction
+     * @param transaction transaction lambda
+     */
+    public void with(Propagation propagation, Transaction transaction) {
+        with(propagation, transaction, transaction);
+    }
+
+    /**
+     * Run JPA style transaction in lambda
+     *
+     * @param propagation propagation if there is a current transaction
+     * @param transaction transaction lambda
+     * @param error       error lambda to run if error is thrown
+     */
+    public void with(Propagation propagation, Transaction transaction, TransactionError error) {
+        transact(propagation, Mode.WRITE, entityManager -> {
+            transaction.accept(entityManager);
+            return null;
+        }, error, transaction);
     }
 
     /**
@@ -96,28 +224,152 @@ public class TransactionProvider {
      * @return object
      */
     public <T> T reduce(ReduceTransaction<T> reduceTransaction, TransactionError error) {
-        T object = null;
-        // Create and start
-        EntityManager entityManager = factory.createEntityManager();
+        return reduce(Propagation.REQUIRED, reduceTransaction, error);
+    }
+
+    /**
+     * Run JPA style transaction in functional style with reduce
+     *
+     * @param propagation       propagation if there is a current transaction
+     * @param reduceTransaction reduce transaction to apply
+     * @param <T>               type of object
+     * @return object
+     */
+    public <T> T reduce(Propagation propagation, ReduceTransaction<T> reduceTransaction) {
+        return reduce(propagation, reduceTransaction, reduceTransaction);
+    }
+
+    /**
+     * Run JPA style transaction in functional style with reduce
+     *
+     * @param propagation       propagation if there is a current transaction
+     * @param reduceTransaction reduce transaction to apply
+     * @param error             error lambda to run if error is thrown
+     * @param <T>               type of object
+     * @return object
+     */
+    public <T> T reduce(Propagation propagation, ReduceTransaction<T> reduceTransaction, TransactionError error) {
+        return transact(propagation, Mode.WRITE, reduceTransaction, error, reduceTransaction);
+    }
+
+    /**
+     * Join the current transaction or run a new transaction with retries, metrics and diagnostics
+     *
+     * @param mode   read only, may write, or run once
+     * @param lambda transaction lambda of the caller, to report as the site when its caller is unknown
+     * @throws IllegalStateException if a transaction that may write would join a read only transaction
+     */
+    private <T> T transact(Propagation propagation, Mode mode, ReduceTransaction<T> reduceTransaction, TransactionError error, Object lambda) {
+        final Map<EntityManagerFactory, Current> current = currentEntityManagers.get();
+        final Current outer = current.get(factory);
+        if (outer != null && propagation != Propagation.REQUIRES_NEW) {
+            if (outer.readOnly && mode != Mode.READ) {
+                // Would never be flushed, or fail on the read only database transaction
+                throw new IllegalStateException("Transaction that may write cannot join a read only transaction, " +
+                        "use Propagation.REQUIRES_NEW");
+            }
+            return join(outer.entityManager, reduceTransaction, error);
+        }
+        if (outer == null && propagation == Propagation.MANDATORY) {
+            throw new TransactionRequiredException("No current transaction to join");
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            // Create and start
+            long start = System.nanoTime();
+            long begun = start;
+            EntityManager entityManager = factory.createEntityManager();
+            current.put(factory, new Current(entityManager, mode == Mode.READ));
+            TransactionDiagnostics diagnostics = this.diagnostics;
+            TransactionDiagnostics.Context context = diagnostics == null ? null : diagnostics.begin(entityManager, lambda);
+            try {
+                entityManager.getTransaction().begin();
+                begun = System.nanoTime();
+                if (mode == Mode.READ) readOnly(entityManager);
+                started(entityManager, mode == Mode.READ);
+                // Run
+                T object = reduceTransaction.apply(entityManager);
+                // Close
+                if (context != null) context.beforeCompletion();
+                entityManager.getTransaction().commit();
+                metrics.record(start, begun, true);
+                if (context != null) context.committed();
+                return object;
+            } catch (Exception e) {
+                if (context != null) context.beforeCompletion();
+                if (entityManager.getTransaction().isActive()) {
+                    entityManager.getTransaction().rollback();
+                }
+                metrics.record(start, begun, false);
+
+                // Retry with a new entity manager
+                if (mode != Mode.ONCE && retryPolicy.retry(e, attempt)) {
+                    metrics.retry(attempt);
+                    continue;
+                }
+
+                // Transaction Error
+                if (error.error(e)) {
+                    throw e;
+                }
+                return null;
+            } finally {
+                // Resume the suspended transaction, if any
+                if (outer == null) {
+                    current.remove(factory);
+                } else {
+                    current.put(factory, outer);
+                }
+                if (context != null) diagnostics.end(context);
+                entityManager.close();
+            }
+        }
+    }
+
+    /**
+     * Entities are loaded read-only without snapshots, are never dirty checked nor flushed
+     * The database transaction is read only, any write fails
+     */
+    private static void readOnly(EntityManager entityManager) {
+        Session session = entityManager.unwrap(Session.class);
+        session.setDefaultReadOnly(true);
+        session.setFlushMode(FlushMode.MANUAL);
+        // Scoped to this transaction, nothing to reset on the pooled connection
+        session.doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET TRANSACTION READ ONLY");
+            }
+        });
+    }
+
+    /**
+     * Called after a new transaction of with or reduce began, joined transactions are not started
+     *
+     * @param entityManager entity manager of the new transaction
+     * @param readOnly      true if begun by read, the database transaction is read only
+     */
+    void started(EntityManager entityManager, boolean readOnly) {
+    }
+
+    /**
+     * Run reduce transaction with the entity manager of the current transaction,
+     * committed or rolled back with the current transaction
+     */
+    private static <T> T join(EntityManager entityManager, ReduceTransaction<T> reduceTransaction, TransactionError error) {
         try {
-            entityManager.getTransaction().begin();
-            // Run
-            object = reduceTransaction.apply(entityManager);
-            // Close
-            entityManager.getTransaction().commit();
+            return reduceTransaction.apply(entityManager);
         } catch (Exception e) {
+            // Partial work of a failed joined transaction must not be committed
             if (entityManager.getTransaction().isActive()) {
-                entityManager.getTransaction().rollback();
+                entityManager.getTransaction().setRollbackOnly();
             }
 
             // Transaction Error
             if (error.error(e)) {
                 throw e;
             }
-        } finally {
-            entityManager.close();
+            return null;
         }
-        return object;
     }
 
     /**
@@ -148,4 +400,284 @@ public class TransactionProvider {
     public <T> Optional<T> optional(OptionalTransaction<T> optionalTransaction, TransactionError error) {
         return reduce(optionalTransaction::optional, error);
     }
+
+    /**
+     * Run JPA style transaction in lambda on the executor
+     *
+     * @param transaction transaction lambda
+     * @return future completed when transaction is committed, exceptionally if error is thrown
+     */
+    public CompletableFuture<Void> withAsync(Transaction transaction) {
+        return withAsync(transaction, transaction);
+    }
+
+    /**
+     * Run JPA style transaction in lambda on the executor
+     *
+     * @param transaction transaction lambda
+     * @param error       error lambda to run if error is thrown
+     * @return future completed when transaction is committed, exceptionally if error is thrown
+     */
+    public CompletableFuture<Void> withAsync(Transaction transaction, TransactionError error) {
+        return CompletableFuture.runAsync(() -> with(transaction, error), getExecutor());
+    }
+
+    /**
+     * Run JPA style transaction in functional style with reduce on the executor
+     *
+     * @param reduceTransaction reduce transaction to apply
+     * @param <T>               type of object
+     * @return future of object
+     */
+    public <T> CompletableFuture<T> reduceAsync(ReduceTransaction<T> reduceTransaction) {
+        return reduceAsync(reduceTransaction, reduceTransaction);
+    }
+
+    /**
+     * Run JPA style transaction in functional style with reduce on the executor
+     *
+     * @param reduceTransaction reduce transaction to apply
+     * @param error             error lambda to run if error is thrown
+     * @param <T>               type of object
+     * @return future of object
+     */
+    public <T> CompletableFuture<T> reduceAsync(ReduceTransaction<T> reduceTransaction, TransactionError error) {
+        return CompletableFuture.supplyAsync(() -> reduce(reduceTransaction, error), getExecutor());
+    }
+
+    /**
+     * Run JPA style transaction in functional style with optional transaction on the executor
+     *
+     * @param optionalTransaction reduce transaction to apply that with convert to optional
+     * @param <T>                 type of object
+     * @return future of object
+     */
+    public <T> CompletableFuture<Optional<T>> optionalAsync(OptionalTransaction<T> optionalTransaction) {
+        return optionalAsync(optionalTransaction, optionalTransaction);
+    }
+
+    /**
+     * Run JPA style transaction in functional style with optional transaction on the executor
+     *
+     * @param optionalTransaction reduce transaction to apply that with convert to optional
+     * @param error               lambda to run if error is thrown
+     * @param <T>                 type of object
+     * @return future of object
+     */
+    public <T> CompletableFuture<Optional<T>> optionalAsync(OptionalTransaction<T> optionalTransaction, TransactionError error) {
+        return CompletableFuture.supplyAsync(() -> optional(optionalTransaction, error), getExecutor());
+    }
+
+    /**
+     * Run JPA style read only transaction in functional style with reduce
+     * Entities are loaded read-only without snapshots, are never dirty checked nor flushed
+     * The database transaction is read only, any write fails
+     * Inside a current transaction, joins it as is
+     * Transactions that may write cannot join a read only transaction, they throw IllegalStateException
+     *
+     * @param reduceTransaction reduce transaction to apply
+     * @param <T>               type of object
+     * @return object
+     */
+    public <T> T read(ReduceTransaction<T> reduceTransaction) {
+        return read(reduceTransaction, reduceTransaction);
+    }
+
+    /**
+     * Run JPA style read only transaction in functional style with reduce
+     *
+     * @param reduceTransaction reduce transaction to apply
+     * @param error             error lambda to run if error is thrown
+     * @param <T>               type of object
+     * @return object
+     * @see TransactionProvider#read(ReduceTransaction)
+     */
+    public <T> T read(ReduceTransaction<T> reduceTransaction, TransactionError error) {
+        // Joins the current transaction as is, read only applies to new transactions
+        return transact(Propagation.REQUIRED, Mode.READ, reduceTransaction, error, reduceTransaction);
+    }
+
+    /**
+     * Run JPA style read only transaction in functional style with optional transaction
+     *
+     * @param optionalTransaction reduce transaction to apply that with convert to optional
+     * @param <T>                 type of object
+     * @return object
+     * @see TransactionProvider#read(ReduceTransaction)
+     */
+    public <T> Optional<T> readOptional(OptionalTransaction<T> optionalTransaction) {
+        return read(optionalTransaction::optional, optionalTransaction);
+    }
+
+    /**
+     * Run JPA style read only transaction in functional style with optional transaction
+     *
+     * @param optionalTransaction reduce transaction to apply that with convert to optional
+     * @param error               lambda to run if error is thrown
+     * @param <T>                 type of object
+     * @return object
+     * @see TransactionProvider#read(ReduceTransaction)
+     */
+    public <T> Optional<T> readOptional(OptionalTransaction<T> optionalTransaction, TransactionError error) {
+        return read(optionalTransaction::optional, error);
+    }
+
+    /**
+     * Run JPA style transaction over items in one transaction, flush and clear every batchSize items
+     * Persistence context never holds more than batchSize items, memory stays flat for any number of items
+     * Always a new transaction, as clearing would detach the entities of a current transaction
+     * Never retried, items may only be iterated once
+     * Second level cache is bypassed for the batch
+     * <p>
+     * JDBC batching is configured on the factory, set hibernate.jdbc.batch_size to batchSize
+     * and hibernate.order_inserts, hibernate.order_updates to true
+     *
+     * @param items            items to apply batch transaction to
+     * @param batchSize        number of items per flush and clear
+     * @param batchTransaction batch transaction to apply to each item
+     * @param <T>              type of item
+     */
+    public <T> void batch(Iterable<T> items, int batchSize, BatchTransaction<T> batchTransaction) {
+        batch(items, batchSize, batchTransaction, batchTransaction);
+    }
+
+    /**
+     * Run JPA style transaction over items in one transaction, flush and clear every batchSize items
+     *
+     * @param items            items to apply batch transaction to
+     * @param batchSize        number of items per flush and clear
+     * @param batchTransaction batch transaction to apply to each item
+     * @param error            error lambda to run if error is thrown
+     * @param <T>              type of item
+     * @see TransactionProvider#batch(Iterable, int, BatchTransaction)
+     */
+    public <T> void batch(Iterable<T> items, int batchSize, BatchTransaction<T> batchTransaction, TransactionError error) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+
+        transact(Propagation.REQUIRES_NEW, Mode.ONCE, entityManager -> {
+            entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+
+            int count = 0;
+            for (T item : items) {
+                batchTransaction.accept(entityManager, item);
+                if (++count % batchSize == 0) {
+                    // Write batch and release its entities and snapshots
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            return null;
+        }, error, batchTransaction);
+    }
+
+    /**
+     * Bulk insert entities with postgres COPY in one transaction
+     * Never retried, entities may only be iterated once
+     *
+     * @param entityClass entity class to copy into its table
+     * @param entities    entities to copy, ids are generated and set on entities without one
+     * @param <T>         type of entity
+     * @return number of rows copied
+     * @see CopyLoader
+     */
+    public <T> long copy(Class<T> entityClass, Iterable<T> entities) {
+        ReduceTransaction<Long> copy = entityManager -> new CopyLoader<>(entityManager, entityClass).copy(entities);
+        return transact(Propagation.REQUIRED, Mode.ONCE, copy, copy, copy);
+    }
+
+    /**
+     * Stream results of a query to consumer in constant memory
+     * Query is scrolled forward only with a server side cursor of fetchSize rows,
+     * entities are read-only and the persistence context is cleared every fetchSize rows
+     * Transaction and entity manager stays open until all results are consumed
+     * Always a new transaction, as clearing would detach the entities of a current transaction
+     * Never retried, results already consumed would be consumed again
+     *
+     * @param scrollTransaction query to scroll
+     * @param fetchSize         rows fetched per round trip, and cleared from the persistence context
+     * @param consumer          consumer of each result, Object[] if query has multiple selections
+     * @param <T>               type of result
+     * @return number of results consumed
+     */
+    public <T> long scroll(ScrollTransaction scrollTransaction, int fetchSize, Consumer<T> consumer) {
+        return scroll(scrollTransaction, fetchSize, consumer, scrollTransaction);
+    }
+
+    /**
+     * Stream results of a query to consumer in constant memory
+     *
+     * @param scrollTransaction query to scroll
+     * @param fetchSize         rows fetched per round trip, and cleared from the persistence context
+     * @param consumer          consumer of each result, Object[] if query has multiple selections
+     * @param error             error lambda to run if error is thrown
+     * @param <T>               type of result
+     * @return number of results consumed
+     * @see TransactionProvider#scroll(ScrollTransaction, int, Consumer)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> long scroll(ScrollTransaction scrollTransaction, int fetchSize, Consumer<T> consumer, TransactionError error) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("fetchSize must be positive");
+        }
+
+        Long count = transact(Propagation.REQUIRES_NEW, Mode.ONCE, entityManager -> {
+            Session session = entityManager.unwrap(Session.class);
+            session.setDefaultReadOnly(true);
+            session.setCacheMode(CacheMode.IGNORE);
+
+            org.hibernate.Query query = scrollTransaction.apply(entityManager).unwrap(org.hibernate.Query.class);
+            query.setFetchSize(fetchSize);
+            query.setReadOnly(true);
+
+            long consumed = 0;
+            ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+            try {
+                while (results.next()) {
+                    Object[] row = results.get();
+                    consumer.accept((T) (row.length == 1 ? row[0] : row));
+                    if (++consumed % fetchSize == 0) {
+                        // Release processed rows
+                        session.clear();
+                    }
+                }
+            } finally {
+                results.close();
+            }
+            return consumed;
+        }, error, scrollTransaction);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Mode of a transaction
+     */
+    private enum Mode {
+        /**
+         * May write
+         */
+        WRITE,
+        /**
+         * Read only, joins any current transaction, only joined by read only transactions
+         */
+        READ,
+        /**
+         * May write, never retried as it consumes items or results that cannot be repeated
+         */
+        ONCE
+    }
+
+    /**
+     * Entity manager of a current transaction, read only if begun by read
+     */
+    private static final class Current {
+        private final EntityManager entityManager;
+        private final boolean readOnly;
+
+        private Current(EntityManager entityManager, boolean readOnly) {
+            this.entityManager = entityManager;
+            this.readOnly = readOnly;
+        }
+    }
 }
@@ -0,0 +1,131 @@
+package com.fxloh.hibernate.utils;
+
+/**
+ * Report of a transaction attempt by TransactionDiagnostics
+ * <p>
+ * Created by: Fuxing
+ * Date: 19/10/2026
+ * Time: 2:10 AM
+ * Project: hibernate-utils
+ */
+public final class TransactionReport {
+    private final String site;
+    private final long millis;
+    private final int prepares;
+    private final String repeatedStatement;
+    private final int repeats;
+    private final int entities;
+    private final int collections;
+    private final long jsonBytes;
+    private final boolean committed;
+    private final String violations;
+
+    TransactionReport(String site, long millis, int prepares, String repeatedStatement, int repeats,
+                      int entities, int collections, long jsonBytes, boolean committed, String violations) {
+        this.site = site;
+        this.millis = millis;
+        this.prepares = prepares;
+        this.repeatedStatement = repeatedStatement;
+        this.repeats = repeats;
+        this.entities = entities;
+        this.collections = collections;
+        this.jsonBytes = jsonBytes;
+        this.committed = committed;
+        this.violations = violations;
+    }
+
+    /**
+     * @return caller of the transaction, e.g. com.example.Foo.bar(Foo.java:42), null if not flagged
+     */
+    public String getSite() {
+        return site;
+    }
+
+    /**
+     * @return wall time in millis from entity manager creation to completion
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * A batch of statements is prepared once, batched executes are not counted apart
+     *
+     * @return number of statements prepared
+     */
+    public int getPrepares() {
+        return prepares;
+    }
+
+    /**
+     * @return statement prepared the most, null without DiagnosticsStatementInspector
+     */
+    public String getRepeatedStatement() {
+        return repeatedStatement;
+    }
+
+    /**
+     * @return prepares of the repeated statement
+     */
+    public int getRepeats() {
+        return repeats;
+    }
+
+    /**
+     * @return entities in the persistence context before completion
+     */
+    public int getEntities() {
+        return entities;
+    }
+
+    /**
+     * @return collections in the persistence context before completion
+     */
+    public int getCollections() {
+        return collections;
+    }
+
+    /**
+     * @return jsonb bytes loaded by JsonUserType
+     */
+    public long getJsonBytes() {
+        return jsonBytes;
+    }
+
+    /**
+     * @return true if committed, false if rolled back
+     */
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    /**
+     * @return true if a threshold is exceeded
+     */
+    public boolean isFlagged() {
+        return violations != null;
+    }
+
+    /**
+     * @return exceeded thresholds, e.g. "prepares &gt; 50, repeats &gt; 10", null if not flagged
+     */
+    public String getViolations() {
+        return violations;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("Transaction");
+        if (site != null) builder.append(" at ").append(site);
+        builder.append(committed ? " committed in " : " rolled back in ").append(millis).append("ms: ")
+                .append(prepares).append(" prepares, ")
+                .append(entities).append(" entities, ")
+                .append(collections).append(" collections, ")
+                .append(jsonBytes).append(" jsonb bytes");
+        if (repeatedStatement != null && repeats > 1) {
+            builder.append(", repeated ").append(repeats).append(" times: ").append(repeatedStatement);
+        }
+        if (violations != null) builder.append(" [").append(violations).append("]");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,66 @@
+package org.hibernate.annotations;
+
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Index on a jsonb property, created by schema generation with JsonPostgreSQLDialect
+ * <pre>
+ * &#64;JsonIndex                                          gin (json)
+ * &#64;JsonIndex(kind = Kind.GIN_PATH_OPS)                gin (json jsonb_path_ops)
+ * &#64;JsonIndex(kind = Kind.GIN, path = "tags")          gin ((json -&gt; 'tags'))
+ * &#64;JsonIndex(kind = Kind.EXPRESSION, path = "name")   btree ((json -&gt;&gt; 'name'))
+ * &#64;JsonIndex(kind = Kind.EXPRESSION, path = {"a", "b"})   btree ((json #&gt;&gt; '{a,b}'))
+ * </pre>
+ * Expression indexes are used by queries with the same expression,
+ * e.g. jsonb_get_text(e.json, 'name') = :name
+ * <p>
+ * Created By: Fuxing Loh
+ * Date: 18/10/2026
+ * Time: 5:20 PM
+ * Project: hibernate-postgres-jsonb
+ */
+@Target({METHOD, FIELD})
+@Retention(RUNTIME)
+@Repeatable(JsonIndexes.class)
+public @interface JsonIndex {
+
+    /**
+     * @return index name, defaults to table_column[_path]_kind
+     */
+    String name() default "";
+
+    Kind kind() default Kind.GIN;
+
+    /**
+     * @return json path of the indexed document, whole column if empty
+     */
+    String[] path() default {};
+
+    /**
+     * @return unique index, EXPRESSION only
+     */
+    boolean unique() default false;
+
+    enum Kind {
+        /**
+         * gin with jsonb_ops, supports @&gt;, ?, ?| and ?&amp;
+         */
+        GIN,
+
+        /**
+         * gin with jsonb_path_ops, smaller and faster, supports @&gt; only
+         */
+        GIN_PATH_OPS,
+
+        /**
+         * btree on the text value of path, supports =, &lt;, &gt; and order by
+         */
+        EXPRESSION
+    }
+}
@@ -0,0 +1,22 @@
+package org.hibernate.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Container of repeated JsonIndex
+ * <p>
+ * Created By: Fuxing Loh
+ * Date: 18/10/2026
+ * Time: 5:20 PM
+ * Project: hibernate-postgres-jsonb
+ */
+@Target({METHOD, FIELD})
+@Retention(RUNTIME)
+public @interface JsonIndexes {
+    JsonIndex[] value();
+}
@@ -0,0 +1,65 @@
+package org.hibernate.dialect;
+
+import org.hibernate.QueryException;
+import org.hibernate.dialect.function.SQLFunction;
+import org.hibernate.engine.spi.Mapping;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.type.Type;
+
+import java.util.List;
+
+/**
+ * Binary jsonb operator rendered as (left operator right[::cast])
+ * Unlike SQLFunctionTemplate, the operator may contain '?', it is rendered as the jdbc escape '??'
+ *
+ * Created By: Fuxing Loh
+ * Date: 18/10/2026
+ * Time: 2:12 PM
+ * Project: hibernate-postgres-jsonb
+ */
+final class JsonOperatorFunction implements SQLFunction {
+
+    private final String operator;
+    private final String cast;
+    private final Type type;
+
+    /**
+     * @param operator postgres operator, e.g. @&gt; or ?|
+     * @param cast     cast applied to right argument, nullable
+     * @param type     return type
+     */
+    JsonOperatorFunction(String operator, String cast, Type type) {
+        this.operator = operator.replace("?", "??");
+        this.cast = cast;
+        this.type = type;
+    }
+
+    @Override
+    public boolean hasArguments() {
+        return true;
+    }
+
+    @Override
+    public boolean hasParenthesesIfNoArguments() {
+        return true;
+    }
+
+    @Override
+    public Type getReturnType(Type firstArgumentType, Mapping mapping) throws QueryException {
+        return type;
+    }
+
+    @Override
+    public String render(Type firstArgumentType, List arguments, SessionFactoryImplementor factory) throws QueryException {
+        if (arguments.size() != 2) {
+            throw new QueryException("jsonb operator " + operator + " requires 2 arguments");
+        }
+
+        StringBuilder builder = new StringBuilder()
+                .append('(').append(arguments.get(0))
+                .append(' ').append(operator).append(' ')
+                .append(arguments.get(1));
+        if (cast != null) builder.append("::").append(cast);
+        return builder.append(')').toString();
+    }
+}
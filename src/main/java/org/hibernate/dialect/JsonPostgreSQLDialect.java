@@ -1,5 +1,11 @@
 package org.hibernate.dialect;
 
+import org.hibernate.dialect.function.StandardSQLFunction;
+import org.hibernate.type.CustomType;
+import org.hibernate.type.StandardBasicTypes;
+import org.hibernate.type.Type;
+import org.hibernate.usertype.JsonUserType;
+
 import java.sql.Types;
 
 /**
@@ -17,5 +23,45 @@ public class JsonPostgreSQLDialect extends PostgreSQL82Dialect {
     public JsonPostgreSQLDialect() {
         super(); // Extends PostgreSQL82Dialect
         registerColumnType(Types.JAVA_OBJECT, "jsonb");
+        registerJsonFunctions();
+    }
+
+    /**
+     * Register jsonb operators and functions for HQL/Criteria
+     * Operators are rendered as operators so that GIN indexes are used
+     * <pre>
+     * jsonb_get(json, 'key')                     json -&gt; 'key'
+     * jsonb_get_text(json, 'key')                json -&gt;&gt; 'key'
+     * jsonb_get_path(json, '{a,b}')              json #&gt; '{a,b}'
+     * jsonb_get_path_text(json, '{a,b}')         json #&gt;&gt; '{a,b}'
+     * jsonb_contains(json, '{"a":1}') = true     json @&gt; '{"a":1}'
+     * jsonb_contained(json, '{"a":1}') = true    json &lt;@ '{"a":1}'
+     * jsonb_has_key(json, 'key') = true          json ? 'key'
+     * jsonb_has_any_key(json, '{a,b}') = true    json ?| '{a,b}'
+     * jsonb_has_all_keys(json, '{a,b}') = true   json ?&amp; '{a,b}'
+     * </pre>
+     * Functions: jsonb_path_exists (postgres 12), jsonb_array_elements, jsonb_array_elements_text,
+     * jsonb_array_length, jsonb_typeof, jsonb_extract_path, jsonb_extract_path_text
+     */
+    protected void registerJsonFunctions() {
+        Type jsonb = new CustomType(new JsonUserType());
+
+        registerFunction("jsonb_get", new JsonOperatorFunction("->", null, jsonb));
+        registerFunction("jsonb_get_text", new JsonOperatorFunction("->>", null, StandardBasicTypes.STRING));
+        registerFunction("jsonb_get_path", new JsonOperatorFunction("#>", "text[]", jsonb));
+        registerFunction("jsonb_get_path_text", new JsonOperatorFunction("#>>", "text[]", StandardBasicTypes.STRING));
+        registerFunction("jsonb_contains", new JsonOperatorFunction("@>", "jsonb", StandardBasicTypes.BOOLEAN));
+        registerFunction("jsonb_contained", new JsonOperatorFunction("<@", "jsonb", StandardBasicTypes.BOOLEAN));
+        registerFunction("jsonb_has_key", new JsonOperatorFunction("?", "text", StandardBasicTypes.BOOLEAN));
+        registerFunction("jsonb_has_any_key", new JsonOperatorFunction("?|", "text[]", StandardBasicTypes.BOOLEAN));
+        registerFunction("jsonb_has_all_keys", new JsonOperatorFunction("?&", "text[]", StandardBasicTypes.BOOLEAN));
+
+        registerFunction("jsonb_path_exists", new StandardSQLFunction("jsonb_path_exists", StandardBasicTypes.BOOLEAN));
+        registerFunction("jsonb_array_elements", new StandardSQLFunction("jsonb_array_elements", jsonb));
+        registerFunction("jsonb_array_elements_text", new StandardSQLFunction("jsonb_array_elements_text", StandardBasicTypes.STRING));
+        registerFunction("jsonb_array_length", new StandardSQLFunction("jsonb_array_length", StandardBasicTypes.INTEGER));
+        registerFunction("jsonb_typeof", new StandardSQLFunction("jsonb_typeof", StandardBasicTypes.STRING));
+        registerFunction("jsonb_extract_path", new StandardSQLFunction("jsonb_extract_path", jsonb));
+        registerFunction("jsonb_extract_path_text", new StandardSQLFunction("jsonb_extract_path_text", StandardBasicTypes.STRING));
     }
 }
@@ -0,0 +1,373 @@
+package org.hibernate.dialect;
+
+import org.hibernate.MappingException;
+import org.hibernate.SessionFactory;
+import org.hibernate.SessionFactoryObserver;
+import org.hibernate.annotations.JsonIndex;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.model.naming.Identifier;
+import org.hibernate.boot.model.relational.Database;
+import org.hibernate.boot.model.relational.SimpleAuxiliaryDatabaseObject;
+import org.hibernate.engine.jdbc.connections.spi.JdbcConnectionAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.Property;
+import org.hibernate.mapping.Selectable;
+import org.hibernate.mapping.Table;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.type.CustomType;
+import org.hibernate.type.Type;
+import org.hibernate.usertype.JsonUserType;
+import org.jboss.logging.Logger;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Adds jsonb schema objects to schema generation when JsonPostgreSQLDialect is used
+ * Patch update columns get a trigger that applies JsonUserType patch envelopes
+ * Properties annotated with JsonIndex get their GIN or expression indexes
+ * Registered with META-INF/services, the DDL is also available for hand written migrations
+ * <p>
+ * Once the session factory is built, after schema generation if any, every patch update column is checked
+ * for its enabled trigger in pg_trigger, with any dialect. Columns without it are written in full,
+ * an envelope is never stored as the document itself.
+ * <p>
+ * Created By: Fuxing Loh
+ * Date: 18/10/2026
+ * Time: 4:45 PM
+ * Project: hibernate-postgres-jsonb
+ */
+public class JsonSchemaIntegrator implements Integrator {
+    private static final Logger logger = Logger.getLogger(JsonSchemaIntegrator.class);
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        final Database database = metadata.getDatabase();
+        final Dialect dialect = database.getDialect();
+        final boolean generate = dialect instanceof JsonPostgreSQLDialect;
+
+        final Set<String> scopes = Collections.singleton(dialect.getClass().getName());
+        final List<PatchColumn> patchColumns = new ArrayList<>();
+        boolean patchFunction = false;
+
+        for (PersistentClass entity : metadata.getEntityBindings()) {
+            Iterator<?> properties = entity.getPropertyIterator();
+            while (properties.hasNext()) {
+                Property property = (Property) properties.next();
+                Column column = column(property);
+                if (column == null) {
+                    continue;
+                }
+
+                final Table table = property.getValue().getTable();
+                final String tableName = database.getJdbcEnvironment().getQualifiedObjectNameFormatter()
+                        .format(table.getQualifiedTableName(), dialect);
+
+                if (generate) {
+                    for (JsonIndex index : indexes(entity.getMappedClass(), property.getName())) {
+                        if (!isJson(property.getType())) {
+                            throw new MappingException("@JsonIndex requires a JsonUserType property: " +
+                                    entity.getEntityName() + "." + property.getName());
+                        }
+
+                        final String name = index.name().isEmpty() ? indexName(table.getName(), column.getName(), index) : index.name();
+                        final Identifier schema = table.getQualifiedTableName().getSchemaName();
+                        final String qualifiedName = schema == null ? name : schema.render(dialect) + "." + name;
+                        database.addAuxiliaryDatabaseObject(new SimpleAuxiliaryDatabaseObject(scopes, null, null,
+                                new String[]{indexSql(tableName, column.getQuotedName(dialect), name, index)},
+                                new String[]{"DROP INDEX IF EXISTS " + qualifiedName}));
+                    }
+                }
+
+                if (!isPatch(property.getType()) || !property.isUpdateable()) {
+                    continue;
+                }
+
+                final String function = patchTriggerName(table.getName(), column.getName());
+                patchColumns.add(new PatchColumn(entity.getEntityName(), property.getName(), tableName, function));
+                if (!generate) {
+                    continue;
+                }
+
+                if (!patchFunction) {
+                    database.addAuxiliaryDatabaseObject(new SimpleAuxiliaryDatabaseObject(scopes, null, null,
+                            new String[]{patchFunctionSql()},
+                            new String[]{"DROP FUNCTION IF EXISTS jsonb_patch_apply(jsonb, jsonb)"}));
+                    patchFunction = true;
+                }
+
+                database.addAuxiliaryDatabaseObject(new SimpleAuxiliaryDatabaseObject(scopes, null, null,
+                        patchTriggerSql(tableName, column.getQuotedName(dialect), function),
+                        new String[]{"DROP FUNCTION IF EXISTS " + function + "() CASCADE"}));
+            }
+        }
+
+        if (!patchColumns.isEmpty()) {
+            // Created after schema generation
+            sessionFactory.addObserver(new PatchTriggers(patchColumns));
+        }
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    /**
+     * @return column of a single column property, null if formula or multiple columns
+     */
+    private static Column column(Property property) {
+        if (property.getColumnSpan() != 1) {
+            return null;
+        }
+        Selectable selectable = (Selectable) property.getColumnIterator().next();
+        return selectable instanceof Column ? (Column) selectable : null;
+    }
+
+    /**
+     * JsonIndex declared on the field or getter of the property, most specific class first
+     *
+     * @param type     mapped class, null for dynamic entities
+     * @param property property name
+     * @return indexes of the property
+     */
+    private static List<JsonIndex> indexes(Class<?> type, String property) {
+        final List<JsonIndex> indexes = new ArrayList<>();
+        final String capitalized = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        for (Class<?> c = type; c != null && c != Object.class && indexes.isEmpty(); c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (field.getName().equals(property)) {
+                    indexes.addAll(Arrays.asList(field.getAnnotationsByType(JsonIndex.class)));
+                }
+            }
+            for (Method method : c.getDeclaredMethods()) {
+                if (method.getParameterCount() == 0 && (method.getName().equals("get" + capitalized)
+                        || method.getName().equals("is" + capitalized))) {
+                    indexes.addAll(Arrays.asList(method.getAnnotationsByType(JsonIndex.class)));
+                }
+            }
+        }
+        return indexes;
+    }
+
+    private static boolean isJson(Type type) {
+        return type instanceof CustomType && ((CustomType) type).getUserType() instanceof JsonUserType;
+    }
+
+    private static boolean isPatch(Type type) {
+        return isJson(type) && ((JsonUserType) ((CustomType) type).getUserType()).isPatch();
+    }
+
+    /**
+     * @param table  table name, unquoted
+     * @param column column name, unquoted
+     * @param index  json index
+     * @return default index name, table_column[_path]_kind
+     */
+    public static String indexName(String table, String column, JsonIndex index) {
+        final StringBuilder builder = new StringBuilder(table).append('_').append(column);
+        for (String path : index.path()) {
+            builder.append('_').append(path);
+        }
+        builder.append('_').append(index.kind() == JsonIndex.Kind.EXPRESSION ? "idx" : index.kind().name());
+        return builder.toString().replaceAll("[^A-Za-z0-9_]", "_").toLowerCase();
+    }
+
+    /**
+     * Requires Postgres 9.5+ for IF NOT EXISTS
+     *
+     * @param table  qualified table name
+     * @param column quoted column name
+     * @param name   index name
+     * @param index  json index
+     * @return DDL of the index
+     * @throws MappingException if the index cannot be expressed
+     */
+    public static String indexSql(String table, String column, String name, JsonIndex index) {
+        final boolean expression = index.kind() == JsonIndex.Kind.EXPRESSION;
+        if (expression && index.path().length == 0) {
+            throw new MappingException("@JsonIndex EXPRESSION requires a path: " + name);
+        }
+        if (index.unique() && !expression) {
+            throw new MappingException("@JsonIndex GIN cannot be unique: " + name);
+        }
+
+        // Rendered the same as the jsonb_get* dialect functions, for the planner to match
+        String indexed = column;
+        if (index.path().length == 1) {
+            indexed = "(" + column + (expression ? " ->> " : " -> ") + literal(index.path()[0]) + ")";
+        } else if (index.path().length > 1) {
+            indexed = "(" + column + (expression ? " #>> " : " #> ") + literal(Arrays.stream(index.path())
+                    .map(path -> "\"" + path.replace("\\", "\\\\").replace("\"", "\\\"") + "\"")
+                    .collect(Collectors.joining(",", "{", "}"))) + ")";
+        }
+
+        final String prefix = "CREATE " + (index.unique() ? "UNIQUE " : "") + "INDEX IF NOT EXISTS " + name + " ON " + table;
+        switch (index.kind()) {
+            case GIN_PATH_OPS:
+                return prefix + " USING gin (" + indexed + " jsonb_path_ops)";
+            case EXPRESSION:
+                return prefix + " (" + indexed + ")";
+            case GIN:
+            default:
+                return prefix + " USING gin (" + indexed + ")";
+        }
+    }
+
+    private static String literal(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    /**
+     * Requires Postgres 9.5+ for jsonb_set and #-
+     *
+     * @return DDL of jsonb_patch_apply(target, ops), shared by all patch triggers
+     */
+    public static String patchFunctionSql() {
+        return "CREATE OR REPLACE FUNCTION jsonb_patch_apply(target jsonb, ops jsonb) RETURNS jsonb AS $$\n" +
+                "DECLARE op jsonb;\n" +
+                "BEGIN\n" +
+                "  FOR op IN SELECT * FROM jsonb_array_elements(ops) LOOP\n" +
+                "    IF op->>'op' = 'remove' THEN\n" +
+                "      target := target #- ARRAY(SELECT jsonb_array_elements_text(op->'path'));\n" +
+                "    ELSE\n" +
+                "      target := jsonb_set(target, ARRAY(SELECT jsonb_array_elements_text(op->'path')), op->'value', true);\n" +
+                "    END IF;\n" +
+                "  END LOOP;\n" +
+                "  RETURN target;\n" +
+                "END $$ LANGUAGE plpgsql IMMUTABLE";
+    }
+
+    /**
+     * @param table  table name, unquoted
+     * @param column column name, unquoted
+     * @return name of the trigger and its function for the column
+     */
+    public static String patchTriggerName(String table, String column) {
+        return (table + "_" + column + "_jsonb_patch").replaceAll("[^A-Za-z0-9_]", "_").toLowerCase();
+    }
+
+    /**
+     * Trigger rejects a patch unless md5 of the stored document matches its base,
+     * so a patch is never applied to anything but the document it was diffed from
+     * Base is the md5 of the UTF-8 text, the stored text is converted for non UTF-8 server encodings
+     * <p>
+     * Fires only for inserts and updates setting the column whose new value has a top level envelope key,
+     * checked on the new value from the statement, stored documents are never detoasted to check it.
+     * Inserts with the key are rejected, a document can never hold it.
+     *
+     * @param table    qualified table name
+     * @param column   quoted column name
+     * @param function trigger and function name
+     * @return DDL of the trigger function and the trigger
+     */
+    public static String[] patchTriggerSql(String table, String column, String function) {
+        final String envelope = "NEW." + column + "->" + literal(JsonUserType.PATCH_ENVELOPE);
+        return new String[]{
+                "CREATE OR REPLACE FUNCTION " + function + "() RETURNS trigger AS $$\n" +
+                        "BEGIN\n" +
+                        "  IF TG_OP = 'INSERT' OR md5(convert_to(OLD." + column + "::text, 'UTF8')) IS DISTINCT FROM " + envelope + "->>'base' THEN\n" +
+                        "    RAISE EXCEPTION 'jsonb patch does not apply to %." + column + "', TG_TABLE_NAME;\n" +
+                        "  END IF;\n" +
+                        "  NEW." + column + " := jsonb_patch_apply(OLD." + column + ", " + envelope + "->'ops');\n" +
+                        "  RETURN NEW;\n" +
+                        "END $$ LANGUAGE plpgsql",
+                // jsonb_exists is the ? operator, not a statement parameter
+                "CREATE TRIGGER " + function + " BEFORE INSERT OR UPDATE OF " + column + " ON " + table +
+                        " FOR EACH ROW WHEN (jsonb_typeof(NEW." + column + ") = 'object' AND jsonb_exists(NEW." + column + ", " +
+                        literal(JsonUserType.PATCH_ENVELOPE) + ")) EXECUTE PROCEDURE " + function + "()"
+        };
+    }
+
+    /**
+     * Patch update column of an entity property
+     */
+    private static final class PatchColumn {
+        private final String entityName;
+        private final String propertyName;
+        private final String table;
+        private final String trigger;
+
+        private PatchColumn(String entityName, String propertyName, String table, String trigger) {
+            this.entityName = entityName;
+            this.propertyName = propertyName;
+            this.table = table;
+            this.trigger = trigger;
+        }
+    }
+
+    /**
+     * Writes patch update columns in full if their trigger is missing or disabled, or cannot be looked up
+     */
+    private static final class PatchTriggers implements SessionFactoryObserver {
+        private final List<PatchColumn> columns;
+
+        private PatchTriggers(List<PatchColumn> columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public void sessionFactoryCreated(SessionFactory factory) {
+            final SessionFactoryImplementor sessionFactory = (SessionFactoryImplementor) factory;
+            final JdbcConnectionAccess access = sessionFactory.getJdbcServices().getBootstrapJdbcConnectionAccess();
+            try {
+                final Connection connection = access.obtainConnection();
+                try {
+                    for (PatchColumn column : columns) {
+                        check(sessionFactory, connection, column);
+                    }
+                } finally {
+                    access.releaseConnection(connection);
+                }
+            } catch (SQLException e) {
+                for (PatchColumn column : columns) {
+                    disable(sessionFactory, column, e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void sessionFactoryClosed(SessionFactory factory) {
+        }
+
+        private static void check(SessionFactoryImplementor sessionFactory, Connection connection, PatchColumn column) {
+            // The table is missing too if it does not cast to regclass
+            try (PreparedStatement statement = connection.prepareStatement("SELECT count(*) FROM pg_trigger " +
+                    "WHERE tgrelid = CAST(? AS regclass) AND tgname = ? AND tgenabled <> 'D'")) {
+                statement.setString(1, column.table);
+                statement.setString(2, column.trigger);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next() && resultSet.getInt(1) > 0) {
+                        return;
+                    }
+                }
+                disable(sessionFactory, column, "trigger " + column.trigger + " is missing or disabled");
+            } catch (SQLException e) {
+                disable(sessionFactory, column, e.getMessage());
+            }
+        }
+
+        private static void disable(SessionFactoryImplementor sessionFactory, PatchColumn column, String reason) {
+            // Types the persister binds with, not resolved again from the property mapping
+            final EntityPersister persister = sessionFactory.getEntityPersister(column.entityName);
+            final Type type = persister.getPropertyTypes()[persister.getEntityMetamodel().getPropertyIndex(column.propertyName)];
+            ((JsonUserType) ((CustomType) type).getUserType()).disablePatch();
+            logger.warnf("jsonb patch update of %s.%s is disabled, updates are written in full: %s",
+                    column.entityName, column.propertyName, reason);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.hibernate.usertype;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.function.Supplier;
+
+/**
+ * ObjectMapper with a CompactNodeFactory, for the mapper type parameter of JsonUserType
+ * E.g. &#64;Parameter(name = JsonUserType.MAPPER, value = "org.hibernate.usertype.CompactMapper")
+ * <p>
+ * Created By: Fuxing Loh
+ * Date: 19/10/2026
+ * Time: 4:30 AM
+ * Project: hibernate-postgres-jsonb
+ */
+public class CompactMapper implements Supplier<ObjectMapper> {
+
+    @Override
+    public ObjectMapper get() {
+        return new ObjectMapper().setNodeFactory(new CompactNodeFactory());
+    }
+}
@@ -0,0 +1,80 @@
+package org.hibernate.usertype;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.util.Map;
+
+/**
+ * Node factory for rows of the same document schema, to retain less heap per loaded tree
+ * Objects keep their children in a CompactMap, short text values share their TextNode
+ * through a fixed size cache, repeated values like enums are held once across rows.
+ * Field names are already canonicalized and interned by the jackson parser.
+ * <p>
+ * The text cache is direct mapped: a value replaces whatever is in its slot,
+ * so it is bounded and unique values only evict, never accumulate.
+ * <p>
+ * Created By: Fuxing Loh
+ * Date: 19/10/2026
+ * Time: 4:30 AM
+ * Project: hibernate-postgres-jsonb
+ *
+ * @see CompactMapper
+ */
+public class CompactNodeFactory extends JsonNodeFactory {
+    static final int MAX_SHARED_LENGTH = 32;
+    static final int TEXT_CACHE_SIZE = 4096;
+
+    private final TextNode[] texts = new TextNode[TEXT_CACHE_SIZE];
+
+    public CompactNodeFactory() {
+        super(false);
+    }
+
+    @Override
+    public ObjectNode objectNode() {
+        return new CompactObjectNode(this, new CompactMap());
+    }
+
+    /**
+     * TextNode is immutable with a final value, safely shared across threads without locking
+     */
+    @Override
+    public TextNode textNode(String text) {
+        if (text == null || text.isEmpty() || text.length() > MAX_SHARED_LENGTH) {
+            return super.textNode(text);
+        }
+
+        int hash = text.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & (TEXT_CACHE_SIZE - 1);
+        TextNode node = texts[slot];
+        if (node != null && text.equals(node.textValue())) {
+            return node;
+        }
+        node = super.textNode(text);
+        texts[slot] = node;
+        return node;
+    }
+
+    /**
+     * Keeps deep copies, e.g. dirty checking snapshots, compact
+     */
+    @SuppressWarnings("unchecked") // ObjectNode narrows the generic JsonNode.deepCopy return type
+    static final class CompactObjectNode extends ObjectNode {
+
+        private CompactObjectNode(JsonNodeFactory factory, Map<String, JsonNode> children) {
+            super(factory, children);
+        }
+
+        @Override
+        public ObjectNode deepCopy() {
+            CompactObjectNode copy = new CompactObjectNode(_nodeFactory, new CompactMap());
+            for (Map.Entry<String, JsonNode> entry : _children.entrySet()) {
+                copy._children.put(entry.getKey(), entry.getValue().deepCopy());
+            }
+            return copy;
+        }
+    }
+}
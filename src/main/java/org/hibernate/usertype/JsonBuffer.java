@@ -0,0 +1,97 @@
+package org.hibernate.usertype;
+
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+
+/**
+ * Thread local, growable byte buffer to serialize jsonb into before binding
+ * Jackson writes through its own recycled generator buffer, this collects the output contiguously
+ * so it can be bound without copying it into an exact sized array first
+ * <p>
+ * Buffers grow by doubling and are kept for the thread, buffers grown past MAX_POOLED_SIZE by a huge
+ * document are dropped on release. Softly referenced like jackson's BufferRecycler, to be cleared under memory pressure.
+ * <p>
+ * Created By: Fuxing Loh
+ * Date: 19/10/2026
+ * Time: 3:40 AM
+ * Project: hibernate-postgres-jsonb
+ */
+final class JsonBuffer extends OutputStream {
+    static final int INITIAL_SIZE = 4 * 1024;
+    static final int MAX_POOLED_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<SoftReference<JsonBuffer>> Pool = new ThreadLocal<>();
+
+    private byte[] buffer = new byte[INITIAL_SIZE];
+    private int length;
+    private boolean acquired;
+
+    private JsonBuffer() {
+    }
+
+    /**
+     * Release after use, a nested acquire on the same thread gets an unpooled buffer
+     *
+     * @return empty buffer of this thread
+     */
+    static JsonBuffer acquire() {
+        SoftReference<JsonBuffer> reference = Pool.get();
+        JsonBuffer buffer = reference == null ? null : reference.get();
+        if (buffer == null) {
+            buffer = new JsonBuffer();
+            Pool.set(new SoftReference<>(buffer));
+        } else if (buffer.acquired) {
+            return new JsonBuffer();
+        }
+        buffer.acquired = true;
+        buffer.length = 0;
+        return buffer;
+    }
+
+    /**
+     * Return buffer to the thread, contents must no longer be referenced
+     */
+    void release() {
+        if (buffer.length > MAX_POOLED_SIZE) {
+            buffer = new byte[INITIAL_SIZE];
+        }
+        acquired = false;
+    }
+
+    /**
+     * @return backing array, valid until the next write or release
+     */
+    byte[] array() {
+        return buffer;
+    }
+
+    /**
+     * @return number of bytes written
+     */
+    int length() {
+        return length;
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(length + 1);
+        buffer[length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        ensureCapacity(this.length + length);
+        System.arraycopy(bytes, offset, buffer, this.length, length);
+        this.length += length;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new OutOfMemoryError("jsonb value too large");
+        }
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, (int) Math.min(Integer.MAX_VALUE - 8, buffer.length * 2L)));
+        }
+    }
+}
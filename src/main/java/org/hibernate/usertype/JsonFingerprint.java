@@ -0,0 +1,98 @@
+package org.hibernate.usertype;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compact snapshot of a json value for dirty checking
+ * Holds the live value with the length and FNV-1a hash of its serialized form,
+ * instead of keeping a second full copy of the tree
+ * <p>
+ * Created By: Fuxing Loh
+ * Date: 18/10/2026
+ * Time: 11:03 AM
+ * Project: hibernate-postgres-jsonb
+ */
+final class JsonFingerprint {
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private final Object value;
+    private final long length;
+    private final long hash;
+
+    private JsonFingerprint(Object value, long length, long hash) {
+        this.value = value;
+        this.length = length;
+        this.hash = hash;
+    }
+
+    /**
+     * Stream value through the writer into the hash, no bytes are kept
+     *
+     * @param value  json value to fingerprint
+     * @param writer writer to serialize value with
+     * @return fingerprint of value as it is now
+     * @throws IOException from writer write value
+     */
+    static JsonFingerprint of(Object value, ObjectWriter writer) throws IOException {
+        HashStream stream = new HashStream();
+        writer.writeValue(stream, value);
+        return new JsonFingerprint(value, stream.length, stream.hash);
+    }
+
+    /**
+     * @param value value or fingerprint
+     * @return live value if fingerprint else value
+     */
+    static Object unwrap(Object value) {
+        if (value instanceof JsonFingerprint) {
+            return ((JsonFingerprint) value).value;
+        }
+        return value;
+    }
+
+    /**
+     * @param other fingerprint to compare with
+     * @return true if both serialized to the same length and hash
+     */
+    boolean matches(JsonFingerprint other) {
+        return length == other.length && hash == other.hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof JsonFingerprint && matches((JsonFingerprint) o);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * OutputStream that only folds written bytes into FNV-1a hash
+     */
+    private static final class HashStream extends OutputStream {
+        private long length = 0;
+        private long hash = OFFSET_BASIS;
+
+        @Override
+        public void write(int b) {
+            hash = (hash ^ (b & 0xff)) * PRIME;
+            length++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            long h = hash;
+            for (int i = off, end = off + len; i < end; i++) {
+                h = (h ^ (b[i] & 0xff)) * PRIME;
+            }
+            hash = h;
+            length += len;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.hibernate.usertype;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Diff of a loaded jsonb object against its current state, sent in place of the full document
+ * Envelope is applied on the server by the trigger JsonSchemaIntegrator installs:
+ * <pre>
+ * {"$jsonb_patch": {"base": "md5 of loaded text", "ops": [
+ *     {"op": "set", "path": ["a", "b"], "value": 1},
+ *     {"op": "remove", "path": ["c"]}
+ * ]}}
+ * </pre>
+ * Base guards the patch, trigger rejects it unless the stored document is still the loaded one
+ * <p>
+ * Created By: Fuxing Loh
+ * Date: 18/10/2026
+ * Time: 4:20 PM
+ * Project: hibernate-postgres-jsonb
+ */
+final class JsonPatch {
+    private JsonPatch() {/* NOT Suppose to init */}
+
+    /**
+     * @param node   lazy node that is dirty against the row it was loaded from
+     * @param mapper mapper to write envelope with
+     * @return envelope bytes, null if the patch is not smaller than the loaded document
+     * @throws IOException from mapper
+     */
+    static byte[] of(LazyObjectNode node, ObjectMapper mapper) throws IOException {
+        final JsonNode base = node.readContent();
+        final ArrayNode ops = mapper.createArrayNode();
+        diff(base, node, mapper.createArrayNode(), ops);
+
+        ObjectNode envelope = mapper.createObjectNode();
+        ObjectNode patch = envelope.putObject(JsonUserType.PATCH_ENVELOPE);
+        patch.put("base", md5(node.content(), node.offset(), node.length()));
+        patch.set("ops", ops);
+
+        byte[] bytes = mapper.writeValueAsBytes(envelope);
+        if (bytes.length >= node.length()) {
+            // Full rewrite is cheaper
+            return null;
+        }
+        return bytes;
+    }
+
+    private static void diff(JsonNode base, JsonNode current, ArrayNode path, ArrayNode ops) {
+        Iterator<String> names = base.fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            if (!current.has(name)) {
+                ObjectNode op = ops.addObject();
+                op.put("op", "remove");
+                op.set("path", path.deepCopy().add(name));
+            }
+        }
+
+        Iterator<Map.Entry<String, JsonNode>> fields = current.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode before = base.get(field.getKey());
+            JsonNode after = field.getValue();
+            if (before != null && before.isObject() && after.isObject()) {
+                diff(before, after, path.deepCopy().add(field.getKey()), ops);
+            } else if (!after.equals(before)) {
+                ObjectNode op = ops.addObject();
+                op.put("op", "set");
+                op.set("path", path.deepCopy().add(field.getKey()));
+                op.set("value", after);
+            }
+        }
+    }
+
+    /**
+     * Postgres renders jsonb text deterministically, content read by the driver in UTF-8
+     * is the same bytes as md5(convert_to(column::text, 'UTF8'))
+     */
+    private static String md5(byte[] content, int offset, int length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            digest.update(content, offset, length);
+            StringBuilder builder = new StringBuilder(32);
+            for (byte b : digest.digest()) {
+                builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+                builder.append(Character.forDigit(b & 0xf, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.hibernate.usertype;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+/**
+ * Listener of jsonb values read and written by JsonUserType, e.g. for metrics
+ * Added with JsonUserType.addListener, hibernate-utils Metrics adds itself
+ * Called synchronously on the hot path of the jsonb value, must not block
+ * <p>
+ * Created By: Fuxing Loh
+ * Date: 19/10/2026
+ * Time: 11:10 AM
+ * Project: hibernate-postgres-jsonb
+ */
+public interface JsonTypeListener {
+
+    /**
+     * Listener of nothing, the default
+     */
+    JsonTypeListener NONE = new JsonTypeListener() {
+    };
+
+    /**
+     * @param factory session factory of the value, null if unknown
+     * @param bytes   jsonb bytes read from a result set
+     */
+    default void read(SessionFactoryImplementor factory, int bytes) {
+    }
+
+    /**
+     * @param factory session factory of the value, null if unknown
+     * @param nanos   nanos to parse a jsonb value, deferred until first access for lazy values
+     */
+    default void parsed(SessionFactoryImplementor factory, long nanos) {
+    }
+
+    /**
+     * @param factory session factory of the value, null if unknown
+     * @param bytes   UTF-8 jsonb bytes bound to a statement
+     */
+    default void written(SessionFactoryImplementor factory, int bytes) {
+    }
+
+    /**
+     * @param factory session factory of the value, null if unknown
+     * @param nanos   nanos to serialize a jsonb value
+     */
+    default void serialized(SessionFactoryImplementor factory, long nanos) {
+    }
+}
@@ -1,19 +1,32 @@
 package org.hibernate.usertype;
 
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.internal.util.ReflectHelper;
 import org.hibernate.type.SerializationException;
+import org.hibernate.type.StringRepresentableType;
 
 import java.io.IOException;
 import java.io.Serializable;
-import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 /**
  * Created By: Fuxing Loh
@@ -21,9 +34,190 @@ import java.util.Objects;
  * Time: 4:06 PM
  * Project: hibernate-postgres-jsonb
  */
-public class JsonUserType implements UserType {
+public class JsonUserType implements UserType, ParameterizedType, StringRepresentableType<Object> {
 
-    private static final ObjectMapper Mapper = new ObjectMapper();
+    /**
+     * Type parameter, "true" to send jsonb in the binary wire format
+     * Requires the jsonb oid (3802) in the driver binaryTransferEnable connection property
+     */
+    public static final String BINARY = "binary";
+
+    /**
+     * Type parameter, canonical java type to bind jsonb to instead of JsonNode
+     * E.g. "com.example.Foo" or "java.util.List&lt;com.example.Foo&gt;"
+     */
+    public static final String CLASS = "class";
+
+    /**
+     * Type parameter, "true" to keep jsonb objects as raw bytes until first access
+     * Only applies to JsonNode values, unread values are clean without being parsed
+     */
+    public static final String LAZY = "lazy";
+
+    /**
+     * Type parameter, dirty checking strategy, "equals" (default) or "fingerprint"
+     */
+    public static final String DIRTY_CHECK = "dirtyCheck";
+
+    /**
+     * Snapshot only a length and hash of the serialized value at load time,
+     * instead of a full deep copy compared with JsonNode.equals
+     * Loaded state seen by listeners and interceptors is then the live value
+     */
+    public static final String FINGERPRINT = "fingerprint";
+
+    /**
+     * Type parameter, update strategy, "full" (default) or "patch"
+     */
+    public static final String UPDATE = "update";
+
+    /**
+     * Send only the changes of a jsonb object against the row it was loaded from,
+     * applied by the trigger JsonSchemaIntegrator installs on schema generation
+     * Implies lazy, falls back to a full rewrite if the patch is not smaller
+     * Disabled at session factory build if the trigger of the column is missing
+     */
+    public static final String PATCH = "patch";
+
+    /**
+     * Top level key of a patch envelope, patch update columns reject objects with it
+     */
+    public static final String PATCH_ENVELOPE = "$jsonb_patch";
+
+    /**
+     * Type parameter, class name of a Supplier&lt;ObjectMapper&gt; with a public no-arg constructor
+     * Supplied once per class and shared by all types using it, to tune e.g. JsonNodeFactory,
+     * BigDecimal handling, JsonFactory features or modules such as Afterburner
+     * Declare it on a package level TypeDef to apply it to a whole persistence unit
+     */
+    public static final String MAPPER = "mapper";
+
+    private static final ObjectMapper DefaultMapper = new ObjectMapper();
+    private static final ConcurrentMap<String, ObjectMapper> Mappers = new ConcurrentHashMap<>();
+
+    private static JsonTypeListener[] listeners = new JsonTypeListener[0];
+    private static volatile JsonTypeListener listener = JsonTypeListener.NONE;
+
+    private ObjectMapper mapper = DefaultMapper;
+    private JavaType type = mapper.constructType(JsonNode.class);
+    private ObjectReader reader = mapper.readerFor(type);
+    private ObjectWriter writer = mapper.writerFor(type);
+
+    private boolean binary;
+    private boolean lazy;
+    private boolean patch;
+    private boolean fingerprint;
+
+    /**
+     * Types are built per session factory, remembered for values assembled from the cache without a session
+     */
+    private SessionFactoryImplementor factory;
+
+    /**
+     * @param listener listener to call on every jsonb value read and written
+     */
+    public static synchronized void addListener(JsonTypeListener listener) {
+        JsonTypeListener[] added = Arrays.copyOf(listeners, listeners.length + 1);
+        added[listeners.length] = Objects.requireNonNull(listener);
+        listeners(added);
+    }
+
+    /**
+     * @param listener listener to remove
+     */
+    public static synchronized void removeListener(JsonTypeListener listener) {
+        listeners(Arrays.stream(listeners)
+                .filter(existing -> existing != listener)
+                .toArray(JsonTypeListener[]::new));
+    }
+
+    private static void listeners(JsonTypeListener[] listeners) {
+        JsonUserType.listeners = listeners;
+        JsonUserType.listener = listeners.length == 0 ? JsonTypeListener.NONE
+                : listeners.length == 1 ? listeners[0] : new Listeners(listeners);
+    }
+
+    /**
+     * @return listener calling every registered listener, NONE if there is none
+     */
+    static JsonTypeListener listener() {
+        return listener;
+    }
+
+    /**
+     * @param session session of the value, null if none
+     * @return session factory of the value, null if not known yet
+     */
+    private SessionFactoryImplementor factory(SessionImplementor session) {
+        if (session == null) {
+            return factory;
+        }
+        if (factory == null) {
+            factory = session.getFactory();
+        }
+        return session.getFactory();
+    }
+
+    /**
+     * @throws HibernateException if mapper or class parameter cannot be resolved
+     */
+    @Override
+    public void setParameterValues(Properties parameters) {
+        this.binary = Boolean.parseBoolean(parameters.getProperty(BINARY));
+        this.fingerprint = FINGERPRINT.equals(parameters.getProperty(DIRTY_CHECK));
+
+        final String supplier = parameters.getProperty(MAPPER);
+        if (supplier != null) {
+            this.mapper = Mappers.computeIfAbsent(supplier, JsonUserType::supplyMapper);
+        }
+
+        final String canonical = parameters.getProperty(CLASS);
+        try {
+            this.type = canonical == null ? mapper.constructType(JsonNode.class)
+                    : mapper.getTypeFactory().constructFromCanonical(canonical);
+        } catch (IllegalArgumentException ex) {
+            throw new HibernateException("Unable to resolve jsonb class " + canonical, ex);
+        }
+        this.reader = mapper.readerFor(type);
+        this.writer = mapper.writerFor(type);
+        this.patch = PATCH.equals(parameters.getProperty(UPDATE))
+                && type.getRawClass().isAssignableFrom(ObjectNode.class);
+        this.lazy = patch || Boolean.parseBoolean(parameters.getProperty(LAZY))
+                && type.getRawClass().isAssignableFrom(ObjectNode.class);
+    }
+
+    /**
+     * @param className class name of Supplier&lt;ObjectMapper&gt;
+     * @return supplied mapper
+     * @throws HibernateException if not instantiable or not a mapper supplier
+     */
+    private static ObjectMapper supplyMapper(String className) throws HibernateException {
+        final Object mapper;
+        try {
+            mapper = ((Supplier<?>) ReflectHelper.classForName(className, JsonUserType.class).newInstance()).get();
+        } catch (ReflectiveOperationException | ClassCastException ex) {
+            throw new HibernateException("Unable to supply jsonb mapper from " + className, ex);
+        }
+        if (!(mapper instanceof ObjectMapper)) {
+            throw new HibernateException(className + " did not supply an ObjectMapper");
+        }
+        return (ObjectMapper) mapper;
+    }
+
+    /**
+     * @return true if updates of jsonb objects are sent as patches
+     */
+    public boolean isPatch() {
+        return patch;
+    }
+
+    /**
+     * Write updates in full, called by JsonSchemaIntegrator at session factory build
+     * if the patch trigger of the column is missing
+     */
+    public void disablePatch() {
+        this.patch = false;
+    }
 
     @Override
     public int[] sqlTypes() {
@@ -31,8 +225,8 @@ public class JsonUserType implements UserType {
     }
 
     @Override
-    public Class<JsonNode> returnedClass() {
-        return JsonNode.class;
+    public Class<?> returnedClass() {
+        return type.getRawClass();
     }
 
     @Override
@@ -43,7 +237,23 @@ public class JsonUserType implements UserType {
         if ((x == null) || (y == null)) {
             return false;
         }
-        return x.equals(y);
+        if (LazyObjectNode.sameUnparsed(x, y)) {
+            // Never accessed since load
+            return true;
+        }
+        if (x instanceof JsonFingerprint || y instanceof JsonFingerprint) {
+            // Loaded snapshot against current value, compare serialized fingerprints
+            return fingerprint(x).matches(fingerprint(y));
+        }
+        if (x instanceof JsonNode) {
+            return x.equals(y);
+        }
+        try {
+            // Typed values may not implement equals, compare what would be written
+            return Arrays.equals(writer.writeValueAsBytes(x), writer.writeValueAsBytes(y));
+        } catch (IOException ex) {
+            throw new HibernateException(ex);
+        }
     }
 
     /**
@@ -51,18 +261,41 @@ public class JsonUserType implements UserType {
      */
     @Override
     public int hashCode(Object object) throws HibernateException {
-        return Objects.requireNonNull(object).hashCode();
+        final Object value = Objects.requireNonNull(JsonFingerprint.unwrap(object));
+        if (value instanceof JsonNode) {
+            return value.hashCode();
+        }
+        // Consistent with equals for typed values
+        return fingerprint(value).hashCode();
     }
 
+    /**
+     * Read jsonb straight from the driver's row buffer
+     * Postgres driver returns the raw UTF-8 cell bytes for text columns without copying,
+     * so jackson parses them directly without building an intermediate String
+     * Binary jsonb cells are the same bytes prefixed with the format version
+     *
+     * @throws HibernateException IOException from mapper read tree
+     */
     @Override
     public Object nullSafeGet(ResultSet rs, String[] names, SessionImplementor session, Object owner) throws HibernateException, SQLException {
-        final String cellContent = rs.getString(names[0]);
+        final byte[] cellContent = rs.getBytes(names[0]);
         if (cellContent == null) {
             return null;
         }
+        final SessionFactoryImplementor factory = factory(session);
+        listener.read(factory, cellContent.length);
         try {
-            // Map from bytes[] to JsonNode
-            return Mapper.readTree(cellContent.getBytes("UTF-8"));
+            // Map from bytes[] to JsonNode or class, skipping binary format version
+            final int offset = JsonbObject.offset(cellContent);
+            if (lazy) {
+                // Only the driver's bytes are the text postgres renders, what a patch base is checked against
+                return LazyObjectNode.of(cellContent, offset, cellContent.length - offset, reader, factory, patch);
+            }
+            final long start = System.nanoTime();
+            final Object value = reader.readValue(cellContent, offset, cellContent.length - offset);
+            listener.parsed(factory, System.nanoTime() - start);
+            return value;
         } catch (Exception ex) {
             throw new HibernateException(ex);
         }
@@ -74,29 +307,124 @@ public class JsonUserType implements UserType {
             ps.setNull(index, Types.OTHER);
             return;
         }
+        // Insert state can be a loaded snapshot
+        value = JsonFingerprint.unwrap(value);
+        if (patch && value instanceof ObjectNode && !LazyObjectNode.isUnparsed(value)
+                && ((ObjectNode) value).has(PATCH_ENVELOPE)) {
+            throw new HibernateException("jsonb object with patch update cannot have a top level " + PATCH_ENVELOPE + " key");
+        }
+        final SessionFactoryImplementor factory = factory(session);
         try {
-            // Map from JsonNode to String
-            final StringWriter w = new StringWriter();
-            Mapper.writeValue(w, value);
-            w.flush();
-            ps.setObject(index, w.toString(), Types.OTHER);
+            if (LazyObjectNode.isUnparsed(value)) {
+                // Never accessed, write back the bytes it was read from
+                final LazyObjectNode node = (LazyObjectNode) value;
+                bind(ps, index, node.content(), node.offset(), node.length());
+                listener.written(factory, node.length());
+                return;
+            }
+
+            final long start = System.nanoTime();
+            if (patch && LazyObjectNode.takePatchable(value)) {
+                // Diff against the loaded row, null if not smaller than a full rewrite
+                final byte[] envelope = JsonPatch.of((LazyObjectNode) value, mapper);
+                if (envelope != null) {
+                    listener.serialized(factory, System.nanoTime() - start);
+                    bind(ps, index, envelope);
+                    listener.written(factory, envelope.length);
+                    return;
+                }
+            }
+
+            // Map from JsonNode or class to UTF-8 bytes in the buffer of this thread,
+            // the driver copies binary jsonb or decodes text jsonb on bind, buffer is free after
+            final JsonBuffer buffer = JsonBuffer.acquire();
+            try {
+                writer.writeValue(buffer, value);
+                listener.serialized(factory, System.nanoTime() - start);
+                bind(ps, index, buffer.array(), 0, buffer.length());
+                listener.written(factory, buffer.length());
+            } finally {
+                buffer.release();
+            }
         } catch (Exception ex) {
             throw new HibernateException(ex);
         }
     }
 
+    private void bind(PreparedStatement ps, int index, byte[] json) throws SQLException {
+        bind(ps, index, json, 0, json.length);
+    }
+
+    /**
+     * Bind UTF-8 json bytes as binary jsonb or as text
+     */
+    private void bind(PreparedStatement ps, int index, byte[] json, int offset, int length) throws SQLException {
+        if (binary) {
+            ps.setObject(index, new JsonbObject(json, offset, length), Types.OTHER);
+        } else {
+            ps.setObject(index, new String(json, offset, length, StandardCharsets.UTF_8), Types.OTHER);
+        }
+    }
+
     /**
-     * Deep copy JsonNode by serializing to bytes with jackson then back to JsonNode
+     * Deep copy JsonNode by cloning the tree structurally, no serialize and parse round trip
+     * Typed values are copied by streaming tokens from writer to reader, no text in between
+     * With fingerprint dirty check, snapshot is the fingerprint of value instead
+     * Unparsed lazy values are copied by sharing their raw bytes
      *
      * @param value object
      * @return Deep Copy
-     * @throws HibernateException IOException from mapper read tree
      */
     @Override
     public Object deepCopy(Object value) throws HibernateException {
+        if (value instanceof JsonFingerprint) {
+            // Snapshot of a snapshot
+            return value;
+        }
+        if (LazyObjectNode.isUnparsed(value)) {
+            return ((LazyObjectNode) value).lazyCopy();
+        }
+        if (fingerprint && value != null) {
+            return fingerprint(value);
+        }
+        return copy(value);
+    }
+
+    /**
+     * @param value value or fingerprint
+     * @return fingerprint of value
+     * @throws HibernateException IOException from mapper write value
+     */
+    private JsonFingerprint fingerprint(Object value) throws HibernateException {
+        if (value instanceof JsonFingerprint) {
+            return (JsonFingerprint) value;
+        }
         try {
-            byte[] bytes = Mapper.writeValueAsBytes(value);
-            return Mapper.readTree(bytes);
+            return JsonFingerprint.of(value, writer);
+        } catch (IOException ex) {
+            throw new HibernateException(ex);
+        }
+    }
+
+    /**
+     * @param value JsonNode or typed value
+     * @return Deep Copy, null if value is null
+     * @throws HibernateException IOException from token buffer
+     */
+    private Object copy(Object value) throws HibernateException {
+        if (value == null) {
+            return null;
+        }
+        if (LazyObjectNode.isUnparsed(value)) {
+            return ((LazyObjectNode) value).lazyCopy();
+        }
+        if (value instanceof JsonNode) {
+            return ((JsonNode) value).deepCopy();
+        }
+        try {
+            final TokenBuffer buffer = new TokenBuffer(mapper, false);
+            writer.writeValue(buffer, value);
+            return reader.readValue(buffer.asParser());
         } catch (IOException ex) {
             throw new HibernateException(ex);
         }
@@ -107,25 +435,126 @@ public class JsonUserType implements UserType {
         return true;
     }
 
+    /**
+     * Cache entries are the immutable UTF-8 json bytes, not a copy of the object graph
+     * Unparsed lazy values hand over the bytes they were loaded from
+     *
+     * @throws HibernateException IOException from writer write value
+     */
     @Override
     public Serializable disassemble(Object value) throws HibernateException {
-        Object deepCopy = deepCopy(value);
+        value = JsonFingerprint.unwrap(value);
+        if (value == null) {
+            return null;
+        }
+        if (LazyObjectNode.isUnparsed(value)) {
+            final LazyObjectNode node = (LazyObjectNode) value;
+            if (node.offset() == 0 && node.length() == node.content().length) {
+                return node.content();
+            }
+            return Arrays.copyOfRange(node.content(), node.offset(), node.offset() + node.length());
+        }
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (IOException ex) {
+            throw new SerializationException(String.format("unable to disassemble %s", value), ex);
+        }
+    }
 
-        if (!(deepCopy instanceof Serializable)) {
-            throw new SerializationException(
-                    String.format("deepCopy of %s is not serializable", value), null);
+    /**
+     * With lazy, cache hits are decoded on first access only
+     * Assembled values are never written as patches, cached bytes may not be the text postgres renders
+     *
+     * @throws HibernateException IOException from reader read value
+     */
+    @Override
+    public Object assemble(Serializable cached, Object owner) throws HibernateException {
+        if (cached == null) {
+            return null;
+        }
+        final byte[] bytes = (byte[]) cached;
+        try {
+            if (lazy) {
+                return LazyObjectNode.of(bytes, 0, bytes.length, reader, factory, false);
+            }
+            return reader.readValue(bytes);
+        } catch (IOException ex) {
+            throw new HibernateException(ex);
         }
+    }
 
-        return (Serializable) deepCopy;
+    /**
+     * Json text written by the configured writer, e.g. for COPY
+     *
+     * @throws HibernateException IOException from writer write value
+     */
+    @Override
+    public String toString(Object value) throws HibernateException {
+        value = JsonFingerprint.unwrap(value);
+        if (LazyObjectNode.isUnparsed(value)) {
+            final LazyObjectNode node = (LazyObjectNode) value;
+            return new String(node.content(), node.offset(), node.length(), StandardCharsets.UTF_8);
+        }
+        try {
+            return writer.writeValueAsString(value);
+        } catch (IOException ex) {
+            throw new HibernateException(ex);
+        }
     }
 
+    /**
+     * @throws HibernateException IOException from reader read value
+     */
     @Override
-    public Object assemble(Serializable cached, Object owner) throws HibernateException {
-        return deepCopy(cached);
+    public Object fromStringValue(String string) throws HibernateException {
+        try {
+            return reader.readValue(string);
+        } catch (IOException ex) {
+            throw new HibernateException(ex);
+        }
     }
 
     @Override
     public Object replace(Object original, Object target, Object owner) throws HibernateException {
-        return deepCopy(original);
+        return copy(JsonFingerprint.unwrap(original));
+    }
+
+    /**
+     * Calls each of the registered listeners in order
+     */
+    private static final class Listeners implements JsonTypeListener {
+        private final JsonTypeListener[] listeners;
+
+        private Listeners(JsonTypeListener[] listeners) {
+            this.listeners = listeners;
+        }
+
+        @Override
+        public void read(SessionFactoryImplementor factory, int bytes) {
+            for (JsonTypeListener listener : listeners) {
+                listener.read(factory, bytes);
+            }
+        }
+
+        @Override
+        public void parsed(SessionFactoryImplementor factory, long nanos) {
+            for (JsonTypeListener listener : listeners) {
+                listener.parsed(factory, nanos);
+            }
+        }
+
+        @Override
+        public void written(SessionFactoryImplementor factory, int bytes) {
+            for (JsonTypeListener listener : listeners) {
+                listener.written(factory, bytes);
+            }
+        }
+
+        @Override
+        public void serialized(SessionFactoryImplementor factory, long nanos) {
+            for (JsonTypeListener listener : listeners) {
+                listener.serialized(factory, nanos);
+            }
+        }
     }
 }
@@ -0,0 +1,89 @@
+package org.hibernate.usertype;
+
+import org.postgresql.util.PGBinaryObject;
+import org.postgresql.util.PGobject;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+/**
+ * jsonb parameter that the driver can send in the binary wire format
+ * Binary jsonb (version 1) is the UTF-8 json text prefixed with a version byte,
+ * connection must list the jsonb oid in binaryTransferEnable, else it falls back to text
+ * <p>
+ * Created By: Fuxing Loh
+ * Date: 18/10/2026
+ * Time: 10:12 AM
+ * Project: hibernate-postgres-jsonb
+ */
+class JsonbObject extends PGobject implements PGBinaryObject {
+
+    /**
+     * jsonb binary format version, first byte of every binary jsonb value
+     */
+    static final byte VERSION = 1;
+
+    private byte[] json;
+    private int offset;
+    private int length;
+
+    /**
+     * @param json UTF-8 json bytes
+     */
+    JsonbObject(byte[] json) {
+        this(json, 0, json.length);
+    }
+
+    /**
+     * @param json   UTF-8 json bytes, not copied
+     * @param offset start of json
+     * @param length length of json
+     */
+    JsonbObject(byte[] json, int offset, int length) {
+        this.json = json;
+        this.offset = offset;
+        this.length = length;
+        setType("jsonb");
+    }
+
+    /**
+     * @param content raw cell content, binary or text format
+     * @return offset where the json text starts
+     */
+    static int offset(byte[] content) {
+        return content.length > 0 && content[0] == VERSION ? 1 : 0;
+    }
+
+    @Override
+    public void setByteValue(byte[] value, int offset) throws SQLException {
+        this.json = value;
+        this.offset = value.length > offset && value[offset] == VERSION ? offset + 1 : offset;
+        this.length = value.length - this.offset;
+    }
+
+    @Override
+    public int lengthInBytes() {
+        return length + 1;
+    }
+
+    @Override
+    public void toBytes(byte[] bytes, int offset) {
+        bytes[offset] = VERSION;
+        System.arraycopy(json, this.offset, bytes, offset + 1, length);
+    }
+
+    @Override
+    public void setValue(String value) throws SQLException {
+        this.json = value.getBytes(StandardCharsets.UTF_8);
+        this.offset = 0;
+        this.length = json.length;
+    }
+
+    /**
+     * @return text format, used when binary send is not enabled for jsonb
+     */
+    @Override
+    public String getValue() {
+        return new String(json, offset, length, StandardCharsets.UTF_8);
+    }
+}
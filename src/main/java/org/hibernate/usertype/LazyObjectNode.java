@@ -0,0 +1,283 @@
+package org.hibernate.usertype;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ObjectNode that keeps the raw jsonb bytes and only parses them on first access
+ * Children map is a stand-in that materializes the tree when any of it is touched
+ * <p>
+ * Created By: Fuxing Loh
+ * Date: 18/10/2026
+ * Time: 2:15 PM
+ * Project: hibernate-postgres-jsonb
+ */
+@SuppressWarnings("unchecked") // ObjectNode narrows the generic JsonNode.deepCopy return type
+final class LazyObjectNode extends ObjectNode {
+
+    private final LazyChildren children;
+
+    /**
+     * True if content is the row as rendered by postgres and no write of this node was bound since
+     */
+    private boolean patchable;
+
+    private LazyObjectNode(LazyChildren children) {
+        super(children.reader.getConfig().getNodeFactory(), children);
+        this.children = children;
+    }
+
+    /**
+     * @param content raw json bytes, never modified
+     * @param offset  start of json in content
+     * @param length  length of json in content
+     * @param reader  JsonNode reader to materialize with
+     * @return lazy node if content is a json object, else the parsed node
+     * @throws IOException from reader read value
+     */
+    static JsonNode of(byte[] content, int offset, int length, ObjectReader reader) throws IOException {
+        return of(content, offset, length, reader, null, false);
+    }
+
+    /**
+     * @param content   raw json bytes, never modified
+     * @param offset    start of json in content
+     * @param length    length of json in content
+     * @param reader    JsonNode reader to materialize with
+     * @param factory   session factory of the value for JsonTypeListener, null if unknown
+     * @param patchable true if content are the driver's bytes of the row, never for re-serialized content
+     *                  as patches are guarded by the md5 of the text postgres renders
+     * @return lazy node if content is a json object, else the parsed node
+     * @throws IOException from reader read value
+     */
+    static JsonNode of(byte[] content, int offset, int length, ObjectReader reader,
+                       SessionFactoryImplementor factory, boolean patchable) throws IOException {
+        if (length > 0 && content[offset] == '{') {
+            final LazyObjectNode node = new LazyObjectNode(new LazyChildren(content, offset, length, reader, factory));
+            node.patchable = patchable;
+            return node;
+        }
+        final long start = System.nanoTime();
+        final JsonNode node = reader.readValue(content, offset, length);
+        JsonUserType.listener().parsed(factory, System.nanoTime() - start);
+        return node;
+    }
+
+    /**
+     * @param value any value
+     * @return true if value is a lazy node that has not been parsed yet
+     */
+    static boolean isUnparsed(Object value) {
+        return value instanceof LazyObjectNode && ((LazyObjectNode) value).children.map == null;
+    }
+
+    /**
+     * @param x any value
+     * @param y any value
+     * @return true if both are unparsed lazy nodes created from the same raw bytes
+     */
+    static boolean sameUnparsed(Object x, Object y) {
+        if (!isUnparsed(x) || !isUnparsed(y)) {
+            return false;
+        }
+        LazyChildren a = ((LazyObjectNode) x).children;
+        LazyChildren b = ((LazyObjectNode) y).children;
+        return a.content == b.content && a.offset == b.offset && a.length == b.length;
+    }
+
+    /**
+     * Patchable is consumed on the first write bound, later writes of this node are full rewrites
+     * as the row no longer holds the loaded bytes
+     *
+     * @param value any value
+     * @return true if value can be written as patch of its loaded bytes
+     */
+    static boolean takePatchable(Object value) {
+        if (value instanceof LazyObjectNode && ((LazyObjectNode) value).patchable) {
+            ((LazyObjectNode) value).patchable = false;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return newly parsed tree of the bytes this node was loaded from
+     * @throws IOException from reader read value
+     */
+    JsonNode readContent() throws IOException {
+        return children.reader.readValue(children.content, children.offset, children.length);
+    }
+
+    /**
+     * @return raw json bytes this node was created from
+     */
+    byte[] content() {
+        return children.content;
+    }
+
+    int offset() {
+        return children.offset;
+    }
+
+    int length() {
+        return children.length;
+    }
+
+    /**
+     * @return copy sharing the same raw bytes, nothing is parsed, never patchable
+     */
+    LazyObjectNode lazyCopy() {
+        return new LazyObjectNode(new LazyChildren(children.content, children.offset, children.length,
+                children.reader, children.factory));
+    }
+
+    /**
+     * Children map that parses the raw bytes into a LinkedHashMap on first use
+     */
+    private static final class LazyChildren extends AbstractMap<String, JsonNode> {
+        private final byte[] content;
+        private final int offset;
+        private final int length;
+        private final ObjectReader reader;
+        private final SessionFactoryImplementor factory;
+
+        private Map<String, JsonNode> map;
+
+        private LazyChildren(byte[] content, int offset, int length, ObjectReader reader, SessionFactoryImplementor factory) {
+            this.content = content;
+            this.offset = offset;
+            this.length = length;
+            this.reader = reader;
+            this.factory = factory;
+        }
+
+        private Map<String, JsonNode> map() {
+            if (map == null) {
+                final Map<String, JsonNode> parsed = reader.getConfig().getNodeFactory() instanceof CompactNodeFactory
+                        ? new CompactMap() : new LinkedHashMap<>();
+                final long start = System.nanoTime();
+                try (JsonParser parser = reader.getFactory().createParser(content, offset, length)) {
+                    // Fields go straight into the children map, no intermediate ObjectNode to copy from
+                    parser.nextToken();
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        final String name = parser.getCurrentName();
+                        parser.nextToken();
+                        parsed.put(name, readValue(parser));
+                    }
+                    if (parser.getCurrentToken() != JsonToken.END_OBJECT) {
+                        throw new JsonParseException(parser, "Unexpected end of jsonb object");
+                    }
+                    JsonUserType.listener().parsed(factory, System.nanoTime() - start);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                map = parsed;
+            }
+            return map;
+        }
+
+        /**
+         * Scalars are created as JsonNodeDeserializer does, numbers and containers are bound by the reader
+         * for its number features, each bind costs a deserialization context
+         */
+        private JsonNode readValue(JsonParser parser) throws IOException {
+            final JsonNodeFactory factory = reader.getConfig().getNodeFactory();
+            switch (parser.getCurrentToken()) {
+                case VALUE_STRING:
+                    return factory.textNode(parser.getText());
+                case VALUE_TRUE:
+                    return factory.booleanNode(true);
+                case VALUE_FALSE:
+                    return factory.booleanNode(false);
+                case VALUE_NULL:
+                    return factory.nullNode();
+                default:
+                    return reader.readTree(parser);
+            }
+        }
+
+        @Override
+        public int size() {
+            return map().size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map().isEmpty();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map().containsKey(key);
+        }
+
+        @Override
+        public boolean containsValue(Object value) {
+            return map().containsValue(value);
+        }
+
+        @Override
+        public JsonNode get(Object key) {
+            return map().get(key);
+        }
+
+        @Override
+        public JsonNode put(String key, JsonNode value) {
+            return map().put(key, value);
+        }
+
+        @Override
+        public JsonNode remove(Object key) {
+            return map().remove(key);
+        }
+
+        @Override
+        public void putAll(Map<? extends String, ? extends JsonNode> m) {
+            map().putAll(m);
+        }
+
+        @Override
+        public void clear() {
+            map().clear();
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return map().keySet();
+        }
+
+        @Override
+        public Collection<JsonNode> values() {
+            return map().values();
+        }
+
+        @Override
+        public Set<Entry<String, JsonNode>> entrySet() {
+            return map().entrySet();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return map().equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return map().hashCode();
+        }
+    }
+}
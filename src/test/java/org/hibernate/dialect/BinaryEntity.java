@@ -0,0 +1,34 @@
+package org.hibernate.dialect;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Created By: Fuxing Loh
+ * Date: 19/10/2026
+ * Time: 4:40 PM
+ * Project: hibernate-postgres-jsonb
+ */
+@Entity
+class BinaryEntity {
+
+    private String id;
+    private byte[] data;
+
+    @Id
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+}
@@ -0,0 +1,54 @@
+package org.hibernate.dialect;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.annotations.Type;
+import org.hibernate.usertype.JsonUserType;
+
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+
+/**
+ * Created By: Fuxing Loh
+ * Date: 19/10/2026
+ * Time: 10:20 AM
+ * Project: hibernate-postgres-jsonb
+ */
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Entity
+class CachedJsonEntity {
+
+    private String id;
+    private ObjectNode patchJson;
+
+    @GeneratedValue(generator = "uuid")
+    @GenericGenerator(name = "uuid", strategy = "org.hibernate.id.UUIDGenerator")
+    @Column(columnDefinition = "CHAR(36)", nullable = false, updatable = false)
+    @Id
+    public String getId() {
+        return id;
+    }
+
+    protected void setId(String id) {
+        this.id = id;
+    }
+
+    @Column(nullable = true)
+    @Type(type = "org.hibernate.usertype.JsonUserType", parameters = {
+            @Parameter(name = JsonUserType.UPDATE, value = JsonUserType.PATCH)
+    })
+    public ObjectNode getPatchJson() {
+        return patchJson;
+    }
+
+    public void setPatchJson(ObjectNode patchJson) {
+        this.patchJson = patchJson;
+    }
+}
@@ -1,7 +1,10 @@
 package org.hibernate.dialect;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.hibernate.annotations.Formula;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.JsonIndex;
+import org.hibernate.annotations.Parameter;
 import org.hibernate.annotations.Type;
 import org.hibernate.annotations.TypeDef;
 import org.hibernate.usertype.JsonUserType;
@@ -26,6 +29,9 @@ class JsonEntity {
     private Long longValue;
 
     private ObjectNode json;
+    private JsonEntityTest.MyCustomObject object;
+    private ObjectNode patchJson;
+    private JsonEntityTest.MyCustomObject nestedObject;
 
     @GeneratedValue(generator = "uuid")
     @GenericGenerator(name = "uuid", strategy = "org.hibernate.id.UUIDGenerator")
@@ -59,6 +65,8 @@ class JsonEntity {
 
     @Column(nullable = true)
     @Type(type = "jsonb")
+    @JsonIndex(kind = JsonIndex.Kind.GIN_PATH_OPS)
+    @JsonIndex(kind = JsonIndex.Kind.EXPRESSION, path = "marker")
     public ObjectNode getJson() {
         return json;
     }
@@ -66,4 +74,40 @@ class JsonEntity {
     public void setJson(ObjectNode json) {
         this.json = json;
     }
+
+    @Column(nullable = true)
+    @Type(type = "org.hibernate.usertype.JsonUserType", parameters = {
+            @Parameter(name = JsonUserType.CLASS, value = "org.hibernate.dialect.JsonEntityTest$MyCustomObject")
+    })
+    public JsonEntityTest.MyCustomObject getObject() {
+        return object;
+    }
+
+    public void setObject(JsonEntityTest.MyCustomObject object) {
+        this.object = object;
+    }
+
+    @Column(nullable = true)
+    @Type(type = "org.hibernate.usertype.JsonUserType", parameters = {
+            @Parameter(name = JsonUserType.UPDATE, value = JsonUserType.PATCH)
+    })
+    public ObjectNode getPatchJson() {
+        return patchJson;
+    }
+
+    public void setPatchJson(ObjectNode patchJson) {
+        this.patchJson = patchJson;
+    }
+
+    @Formula("json -> 'nested'")
+    @Type(type = "org.hibernate.usertype.JsonUserType", parameters = {
+            @Parameter(name = JsonUserType.CLASS, value = "org.hibernate.dialect.JsonEntityTest$MyCustomObject")
+    })
+    public JsonEntityTest.MyCustomObject getNestedObject() {
+        return nestedObject;
+    }
+
+    protected void setNestedObject(JsonEntityTest.MyCustomObject nestedObject) {
+        this.nestedObject = nestedObject;
+    }
 }
@@ -4,13 +4,26 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fxloh.hibernate.utils.HibernateUtils;
 import com.fxloh.hibernate.utils.TransactionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.CustomType;
+import org.hibernate.type.Type;
+import org.hibernate.usertype.JsonUserType;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import javax.persistence.Persistence;
+import javax.persistence.PersistenceException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Created By: Fuxing Loh
@@ -22,6 +35,7 @@ class JsonEntityTest {
 
     static ObjectMapper mapper = new ObjectMapper();
     static TransactionProvider provider;
+    static Map<String, String> properties = new HashMap<>();
 
     @BeforeAll
     static void beforeAll() throws Exception {
@@ -29,7 +43,6 @@ class JsonEntityTest {
         // docker run -d -p 32978:5432 -e POSTGRES_USER=jsonb-user -e POSTGRES_PASSWORD=6w51SG476dfd --name jsonb-database postgres
         HibernateUtils.shutdown();
 
-        Map<String, String> properties = new HashMap<>();
         properties.put("hibernate.hikari.dataSource.url", "jdbc:postgresql://localhost:32978/jsonb-user");
         properties.put("hibernate.hikari.dataSource.user", "jsonb-user");
         properties.put("hibernate.hikari.dataSource.password", "6w51SG476dfd");
@@ -111,6 +124,239 @@ class JsonEntityTest {
         assertEquals(queryObject, object);
     }
 
+    @Test
+    void persistTypedObject() throws Exception {
+        MyCustomObject object = new MyCustomObject();
+        object.setValue("Foo");
+
+        JsonEntity entity = new JsonEntity();
+        entity.setName("Awesome");
+        entity.setObject(object);
+
+        // Persist
+        final String id = provider.reduce(em -> {
+            em.persist(entity);
+            return entity.getId();
+        });
+
+        // Query & assert
+        JsonEntity queryEntity = provider.reduce(em -> em.find(JsonEntity.class, id));
+        assertEquals(queryEntity.getObject(), object);
+
+        // Update typed object in place
+        provider.with(em -> em.find(JsonEntity.class, id).getObject().setValue("Bar"));
+
+        // Query updated entity and assert
+        JsonEntity entity2 = provider.reduce(em -> em.find(JsonEntity.class, id));
+        assertEquals(entity2.getObject().getValue(), "Bar");
+    }
+
+    @Test
+    void persistPatch() throws Exception {
+        JsonEntity entity = new JsonEntity();
+        entity.setName("Awesome");
+
+        // Large enough for a patch to be smaller than the document
+        ObjectNode node = mapper.createObjectNode();
+        node.put("parser", "jackson");
+        node.putObject("nested").put("keep", "value").put("remove", "value");
+        for (int i = 0; i < 50; i++) {
+            node.put("key" + i, "value " + i);
+        }
+        entity.setPatchJson(node);
+
+        // Persist & get Id
+        final String id = provider.reduce(em -> {
+            em.persist(entity);
+            return entity.getId();
+        });
+
+        // Update a nested key, remove one and add one
+        provider.with(em -> {
+            ObjectNode json = em.find(JsonEntity.class, id).getPatchJson();
+            json.put("name", "Fuxing");
+            ((ObjectNode) json.get("nested")).put("keep", "changed").remove("remove");
+        });
+
+        // Query updated entity and assert
+        ObjectNode expected = node.deepCopy();
+        expected.put("name", "Fuxing");
+        ((ObjectNode) expected.get("nested")).put("keep", "changed").remove("remove");
+        JsonEntity entity2 = provider.reduce(em -> em.find(JsonEntity.class, id));
+        assertEquals(entity2.getPatchJson(), expected);
+
+        // Envelope key is reserved, by the type and by the trigger
+        JsonEntity envelope = new JsonEntity();
+        envelope.setName("Envelope");
+        envelope.setPatchJson(mapper.createObjectNode());
+        envelope.getPatchJson().putObject(JsonUserType.PATCH_ENVELOPE);
+        assertThrows(PersistenceException.class, () -> provider.with(em -> em.persist(envelope)));
+        assertThrows(PersistenceException.class, () -> provider.with(em -> em.createNativeQuery(
+                "UPDATE JsonEntity SET patchJson = '{\"" + JsonUserType.PATCH_ENVELOPE + "\": {}}' WHERE id = :id")
+                .setParameter("id", id).executeUpdate()));
+    }
+
+    @Test
+    void persistPatchWithoutTrigger() throws Exception {
+        // Schema from migrations that missed the trigger
+        final String trigger = JsonSchemaIntegrator.patchTriggerName("JsonEntity", "patchJson");
+        provider.with(em -> em.createNativeQuery("DROP TRIGGER " + trigger + " ON JsonEntity").executeUpdate());
+
+        Map<String, String> migrations = new HashMap<>(properties);
+        migrations.put("hibernate.hbm2ddl.auto", "");
+        TransactionProvider migrated = new TransactionProvider(Persistence.createEntityManagerFactory(
+                HibernateUtils.DEFAULT_PERSISTENCE_UNIT, migrations));
+        try {
+            SessionFactoryImplementor factory = migrated.getFactory().unwrap(SessionFactoryImplementor.class);
+            assertFalse(isPatch(factory, JsonEntity.class));
+            assertTrue(isPatch(factory, CachedJsonEntity.class));
+
+            // Written in full, the envelope is never stored as the document
+            ObjectNode node = mapper.createObjectNode();
+            for (int i = 0; i < 50; i++) {
+                node.put("key" + i, "value " + i);
+            }
+            JsonEntity entity = new JsonEntity();
+            entity.setName("Migrated");
+            entity.setPatchJson(node);
+            final String id = migrated.reduce(em -> {
+                em.persist(entity);
+                return entity.getId();
+            });
+            migrated.with(em -> em.find(JsonEntity.class, id).getPatchJson().put("name", "Fuxing"));
+
+            ObjectNode expected = node.deepCopy();
+            expected.put("name", "Fuxing");
+            assertEquals(migrated.reduce(em -> em.find(JsonEntity.class, id)).getPatchJson(), expected);
+        } finally {
+            migrated.close();
+            provider.with(em -> em.createNativeQuery(JsonSchemaIntegrator.patchTriggerSql("JsonEntity", "patchJson", trigger)[1])
+                    .executeUpdate());
+        }
+    }
+
+    private static boolean isPatch(SessionFactoryImplementor factory, Class<?> entityClass) {
+        EntityPersister persister = factory.getEntityPersister(entityClass.getName());
+        Type type = persister.getPropertyTypes()[persister.getEntityMetamodel().getPropertyIndex("patchJson")];
+        return ((JsonUserType) ((CustomType) type).getUserType()).isPatch();
+    }
+
+    @Test
+    void persistPatchCached() throws Exception {
+        ObjectNode node = mapper.createObjectNode();
+        for (int i = 0; i < 50; i++) {
+            node.put("key" + i, "value " + i);
+        }
+        CachedJsonEntity entity = new CachedJsonEntity();
+        entity.setPatchJson(node);
+
+        final String id = provider.reduce(em -> {
+            em.persist(entity);
+            return entity.getId();
+        });
+        final boolean cached = provider.reduce(em -> em.getEntityManagerFactory().getCache().contains(CachedJsonEntity.class, id));
+        assertTrue(cached);
+
+        // Cache hit is not the text postgres renders, written in full instead of as a patch
+        provider.with(em -> em.find(CachedJsonEntity.class, id).getPatchJson().put("name", "Fuxing"));
+
+        ObjectNode expected = node.deepCopy();
+        expected.put("name", "Fuxing");
+        provider.with(em -> em.getEntityManagerFactory().getCache().evict(CachedJsonEntity.class, id));
+        assertEquals(provider.reduce(em -> em.find(CachedJsonEntity.class, id)).getPatchJson(), expected);
+
+        // Loaded from the row, written as a patch
+        provider.with(em -> em.find(CachedJsonEntity.class, id).getPatchJson().remove("key0"));
+        expected.remove("key0");
+        provider.with(em -> em.getEntityManagerFactory().getCache().evict(CachedJsonEntity.class, id));
+        assertEquals(provider.reduce(em -> em.find(CachedJsonEntity.class, id)).getPatchJson(), expected);
+    }
+
+    @Test
+    void queryJson() throws Exception {
+        final String marker = UUID.randomUUID().toString();
+        ObjectNode node = mapper.createObjectNode();
+        node.put("marker", marker);
+        node.putArray("tags").add("a").add("b");
+        node.putObject("nested").put("n", 1);
+
+        JsonEntity entity = new JsonEntity();
+        entity.setName("Awesome");
+        entity.setJson(node);
+        final String id = provider.reduce(em -> {
+            em.persist(entity);
+            return entity.getId();
+        });
+
+        // Filter on json content in postgres
+        String contains = provider.reduce(em -> em.createQuery("SELECT e.id FROM JsonEntity e " +
+                "WHERE jsonb_contains(e.json, :filter) = true", String.class)
+                .setParameter("filter", "{\"marker\": \"" + marker + "\"}")
+                .getSingleResult());
+        assertEquals(contains, id);
+
+        String keys = provider.reduce(em -> em.createQuery("SELECT e.id FROM JsonEntity e " +
+                "WHERE jsonb_get_text(e.json, 'marker') = :marker " +
+                "AND jsonb_has_key(e.json, 'tags') = true " +
+                "AND jsonb_has_any_key(e.json, :any) = true " +
+                "AND jsonb_has_all_keys(e.json, '{tags,nested}') = true " +
+                "AND jsonb_path_exists(e.json, '$.nested.n') = true " +
+                "AND jsonb_array_length(jsonb_get(e.json, 'tags')) = 2", String.class)
+                .setParameter("marker", marker)
+                .setParameter("any", "{missing,tags}")
+                .getSingleResult());
+        assertEquals(keys, id);
+
+        // Project json paths without loading the document
+        Object[] row = provider.reduce(em -> em.createQuery("SELECT jsonb_get(e.json, 'nested'), " +
+                "jsonb_get_path_text(e.json, '{nested,n}'), jsonb_typeof(jsonb_get(e.json, 'tags')) " +
+                "FROM JsonEntity e WHERE e.id = :id", Object[].class)
+                .setParameter("id", id)
+                .getSingleResult());
+        assertEquals(row[0], node.get("nested"));
+        assertEquals(row[1], "1");
+        assertEquals(row[2], "array");
+
+        List<String> tags = provider.reduce(em -> em.createQuery("SELECT jsonb_array_elements_text(jsonb_get(e.json, 'tags')) " +
+                "FROM JsonEntity e WHERE e.id = :id", String.class)
+                .setParameter("id", id)
+                .getResultList());
+        assertEquals(tags, Arrays.asList("a", "b"));
+    }
+
+    @Test
+    void persistProjection() throws Exception {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("parser", "jackson");
+        node.putObject("nested").put("value", "Foo");
+
+        JsonEntity entity = new JsonEntity();
+        entity.setName("Awesome");
+        entity.setJson(node);
+        final String id = provider.reduce(em -> {
+            em.persist(entity);
+            return entity.getId();
+        });
+
+        // Only the nested path is selected into the projection
+        JsonEntity queryEntity = provider.reduce(em -> em.find(JsonEntity.class, id));
+        assertEquals(queryEntity.getNestedObject().getValue(), "Foo");
+
+        // Projection is read only, changes are not flushed
+        provider.with(em -> em.find(JsonEntity.class, id).getNestedObject().setValue("Bar"));
+        JsonEntity entity2 = provider.reduce(em -> em.find(JsonEntity.class, id));
+        assertEquals(entity2.getNestedObject().getValue(), "Foo");
+        assertEquals(entity2.getJson(), node);
+    }
+
+    @Test
+    void jsonIndex() throws Exception {
+        List<?> indexes = provider.reduce(em -> em.createNativeQuery("SELECT indexdef FROM pg_indexes " +
+                "WHERE tablename = 'jsonentity' ORDER BY indexname").getResultList());
+        assertTrue(indexes.contains("CREATE INDEX jsonentity_json_gin_path_ops ON public.jsonentity USING gin (json jsonb_path_ops)"));
+        assertTrue(indexes.contains("CREATE INDEX jsonentity_json_marker_idx ON public.jsonentity USING btree (((json ->> 'marker'::text)))"));
+    }
+
     public static class MyCustomObject {
 
         private String value;
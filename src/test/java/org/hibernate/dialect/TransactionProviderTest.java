@@ -0,0 +1,580 @@
+package org.hibernate.dialect;
+
+import com.fxloh.hibernate.utils.HibernateUtils;
+import com.fxloh.hibernate.utils.JsonMetrics;
+import com.fxloh.hibernate.utils.LatencyHistogram;
+import com.fxloh.hibernate.utils.Metrics;
+import com.fxloh.hibernate.utils.MetricsListener;
+import com.fxloh.hibernate.utils.Propagation;
+import com.fxloh.hibernate.utils.ReduceTransaction;
+import com.fxloh.hibernate.utils.RetryPolicy;
+import com.fxloh.hibernate.utils.RoutingTransactionProvider;
+import com.fxloh.hibernate.utils.TransactionExecutors;
+import com.fxloh.hibernate.utils.TransactionDiagnostics;
+import com.fxloh.hibernate.utils.TransactionMetrics;
+import com.fxloh.hibernate.utils.TransactionReport;
+import com.fxloh.hibernate.utils.TransactionProvider;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.usertype.JsonTypeListener;
+import org.hibernate.usertype.JsonUserType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.persistence.PersistenceException;
+import javax.persistence.RollbackException;
+import javax.persistence.TransactionRequiredException;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * TransactionProvider against the jsonb test database
+ * <p>
+ * Created By: Fuxing Loh
+ * Date: 18/10/2026
+ * Time: 7:20 PM
+ * Project: hibernate-postgres-jsonb
+ */
+class TransactionProviderTest {
+
+    static TransactionProvider provider;
+    static Map<String, String> properties = new HashMap<>();
+
+    @BeforeAll
+    static void beforeAll() throws Exception {
+        HibernateUtils.shutdown();
+
+        properties.put("hibernate.hikari.dataSource.url", "jdbc:postgresql://localhost:32978/jsonb-user");
+        properties.put("hibernate.hikari.dataSource.user", "jsonb-user");
+        properties.put("hibernate.hikari.dataSource.password", "6w51SG476dfd");
+
+        HibernateUtils.setupFactory(properties);
+        provider = HibernateUtils.get();
+    }
+
+    static List<JsonEntity> entities(String name, int size) {
+        List<JsonEntity> entities = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            JsonEntity entity = new JsonEntity();
+            entity.setName(name);
+            entity.setLongValue((long) i);
+            entity.setJson(JsonEntityTest.mapper.createObjectNode().put("index", i));
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    static long count(String name) {
+        return provider.reduce(em -> em.createQuery("SELECT COUNT(e) FROM JsonEntity e WHERE e.name = :name", Long.class)
+                .setParameter("name", name)
+                .getSingleResult());
+    }
+
+    @Test
+    void batch() throws Exception {
+        final String name = UUID.randomUUID().toString();
+
+        provider.batch(entities(name, 250), 100, (em, entity) -> {
+            em.persist(entity);
+            // Persistence context is cleared every batch
+            int managed = em.unwrap(Session.class).getStatistics().getEntityCount();
+            assertTrue(managed <= 100, "managed " + managed);
+        });
+        assertEquals(count(name), 250);
+    }
+
+    @Test
+    void copy() throws Exception {
+        final String name = UUID.randomUUID().toString();
+        List<JsonEntity> entities = entities(name, 250);
+
+        // Escaped values and typed jsonb
+        JsonEntity first = entities.get(0);
+        first.getJson().put("text", "tab\t newline\n backslash\\ quote\" unicode \u00e9");
+        JsonEntityTest.MyCustomObject object = new JsonEntityTest.MyCustomObject();
+        object.setValue("Foo");
+        first.setObject(object);
+
+        assertEquals(provider.copy(JsonEntity.class, entities), 250);
+        assertEquals(count(name), 250);
+
+        JsonEntity queryEntity = provider.reduce(em -> em.find(JsonEntity.class, first.getId()));
+        assertEquals(queryEntity.getJson(), first.getJson());
+        assertEquals(queryEntity.getObject(), object);
+        assertEquals(queryEntity.getLongValue().longValue(), 0L);
+        assertEquals(queryEntity.getPatchJson(), null);
+
+        // bytea has no COPY text representation
+        BinaryEntity binary = new BinaryEntity();
+        binary.setId(name);
+        binary.setData(new byte[]{1, 2});
+        HibernateException e = assertThrows(HibernateException.class,
+                () -> provider.copy(BinaryEntity.class, Collections.singletonList(binary)));
+        assertTrue(e.getMessage().contains("binary column"));
+    }
+
+    @Test
+    void scroll() throws Exception {
+        final String name = UUID.randomUUID().toString();
+        provider.copy(JsonEntity.class, entities(name, 250));
+
+        List<Long> values = new ArrayList<>();
+        long count = provider.scroll(em -> em.createQuery("SELECT e FROM JsonEntity e WHERE e.name = :name ORDER BY e.longValue")
+                .setParameter("name", name), 100, (JsonEntity entity) -> {
+            assertEquals(entity.getJson().path("index").asLong(), entity.getLongValue().longValue());
+            values.add(entity.getLongValue());
+            // Read-only, never flushed
+            entity.setName("Changed");
+        });
+        assertEquals(count, 250);
+        assertEquals(values.size(), 250);
+        assertEquals(values.get(249).longValue(), 249L);
+        assertEquals(count(name), 250);
+
+        // Multiple selections as Object[]
+        List<Object[]> rows = new ArrayList<>();
+        provider.scroll(em -> em.createQuery("SELECT e.id, e.longValue FROM JsonEntity e WHERE e.name = :name")
+                .setParameter("name", name), 10, (Object[] row) -> rows.add(row));
+        assertEquals(rows.size(), 250);
+        assertEquals(rows.get(0).length, 2);
+    }
+
+    @Test
+    void read() throws Exception {
+        final String name = UUID.randomUUID().toString();
+        JsonEntity entity = entities(name, 1).get(0);
+        provider.with(em -> em.persist(entity));
+
+        JsonEntity readEntity = provider.read(em -> {
+            JsonEntity found = em.find(JsonEntity.class, entity.getId());
+            assertTrue(em.unwrap(Session.class).isReadOnly(found));
+            // Changes are never flushed
+            found.getJson().put("changed", true);
+            found.setName("Changed");
+            return found;
+        });
+        assertEquals(readEntity.getName(), "Changed");
+        assertEquals(count(name), 1);
+
+        // Database transaction is read only
+        assertThrows(PersistenceException.class, () -> provider.read(em ->
+                em.createNativeQuery("UPDATE JsonEntity SET name = 'Changed'").executeUpdate()));
+
+        assertFalse(provider.readOptional(em -> em.createQuery("SELECT e FROM JsonEntity e WHERE e.name = :name", JsonEntity.class)
+                .setParameter("name", "Changed")
+                .getSingleResult()).isPresent());
+    }
+
+    @Test
+    void async() throws Exception {
+        final String name = UUID.randomUUID().toString();
+        for (Executor executor : Arrays.asList(TransactionExecutors.bounded(3), TransactionExecutors.virtual(3))) {
+            TransactionProvider async = new TransactionProvider(provider.getFactory(), executor);
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (JsonEntity entity : entities(name, 12)) {
+                futures.add(async.reduceAsync(em -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    em.persist(entity);
+                    em.flush();
+                    running.decrementAndGet();
+                    return entity.getId();
+                }));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+            assertTrue(maxRunning.get() <= 3, "max running " + maxRunning.get());
+
+            // Errors complete exceptionally
+            CompletableFuture<Void> failed = async.withAsync(em -> em.persist(null));
+            assertThrows(ExecutionException.class, failed::get);
+            assertFalse(async.optionalAsync(em -> em.createQuery("SELECT e FROM JsonEntity e WHERE e.name = 'None'")
+                    .getSingleResult()).get().isPresent());
+        }
+        assertEquals(count(name), 24);
+        assertEquals(TransactionExecutors.poolSize(provider.getFactory()), 10);
+    }
+
+    @Test
+    void executor() throws Exception {
+        // Full queue blocks the submitter, shut down rejects
+        ExecutorService bounded = TransactionExecutors.bounded(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        bounded.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        bounded.execute(() -> {
+        });
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> bounded.execute(() -> {
+        }));
+        Thread.sleep(100);
+        assertFalse(blocked.isDone());
+        release.countDown();
+        blocked.get();
+        bounded.shutdown();
+        assertThrows(RejectedExecutionException.class, () -> bounded.execute(() -> {
+        }));
+
+        // Default executor is shut down on close, a given executor is not
+        Map<String, String> closingProperties = new HashMap<>(properties);
+        closingProperties.put("hibernate.hbm2ddl.auto", "");
+        TransactionProvider closing = new TransactionProvider(Persistence.createEntityManagerFactory(
+                HibernateUtils.DEFAULT_PERSISTENCE_UNIT, closingProperties));
+        ExecutorService executor = (ExecutorService) closing.getExecutor();
+        ExecutorService given = TransactionExecutors.bounded(1);
+        TransactionProvider closingGiven = new TransactionProvider(Persistence.createEntityManagerFactory(
+                HibernateUtils.DEFAULT_PERSISTENCE_UNIT, closingProperties), given);
+        closing.close();
+        closingGiven.close();
+        assertTrue(executor.isShutdown());
+        assertFalse(given.isShutdown());
+        given.shutdown();
+    }
+
+    @Test
+    void retry() throws Exception {
+        TransactionProvider retrying = new TransactionProvider(provider.getFactory());
+        retrying.setRetryPolicy(new RetryPolicy(3, 10, 100));
+
+        // Serialization failure on the first 2 attempts, each with a new entity manager
+        Set<EntityManager> entityManagers = new HashSet<>();
+        String value = retrying.reduce(em -> {
+            entityManagers.add(em);
+            if (entityManagers.size() < 3) {
+                em.createNativeQuery("DO $$ BEGIN RAISE EXCEPTION 'conflict' USING ERRCODE = '40001'; END $$").executeUpdate();
+            }
+            return "committed";
+        });
+        assertEquals(value, "committed");
+        assertEquals(entityManagers.size(), 3);
+
+        // Attempts exhausted
+        AtomicInteger attempts = new AtomicInteger();
+        assertThrows(PersistenceException.class, () -> retrying.with(em -> {
+            attempts.incrementAndGet();
+            em.createNativeQuery("DO $$ BEGIN RAISE EXCEPTION 'deadlock' USING ERRCODE = '40P01'; END $$").executeUpdate();
+        }));
+        assertEquals(attempts.get(), 3);
+
+        // Not retryable
+        attempts.set(0);
+        assertThrows(PersistenceException.class, () -> retrying.with(em -> {
+            attempts.incrementAndGet();
+            em.createNativeQuery("SELECT 1 / 0").getSingleResult();
+        }));
+        assertEquals(attempts.get(), 1);
+
+        // batch, copy and scroll consume their items or results once, never retried
+        attempts.set(0);
+        assertThrows(PersistenceException.class, () -> retrying.batch(Arrays.asList(1, 2), 10, (em, item) -> {
+            attempts.incrementAndGet();
+            if (item == 2) {
+                em.createNativeQuery("DO $$ BEGIN RAISE EXCEPTION 'conflict' USING ERRCODE = '40001'; END $$").executeUpdate();
+            }
+        }));
+        assertEquals(attempts.get(), 2);
+
+        final String name = UUID.randomUUID().toString();
+        attempts.set(0);
+        Iterator<JsonEntity> once = entities(name, 2).iterator();
+        assertThrows(HibernateException.class, () -> retrying.copy(JsonEntity.class, () -> {
+            attempts.incrementAndGet();
+            return new Iterator<JsonEntity>() {
+                @Override
+                public boolean hasNext() {
+                    return true;
+                }
+
+                @Override
+                public JsonEntity next() {
+                    if (!once.hasNext()) throw new PersistenceException(new SQLException("conflict", "40001"));
+                    return once.next();
+                }
+            };
+        }));
+        assertEquals(attempts.get(), 1);
+        assertEquals(count(name), 0);
+
+        List<Object> consumed = new ArrayList<>();
+        assertThrows(PersistenceException.class, () -> retrying.scroll(em -> em.createNativeQuery("SELECT generate_series(1, 3)"), 10, row -> {
+            consumed.add(row);
+            if (consumed.size() == 2) throw new PersistenceException(new SQLException("conflict", "40001"));
+        }));
+        assertEquals(consumed.size(), 2);
+    }
+
+    @Test
+    void routing() throws Exception {
+        // Replica stand in, same database with another application name
+        final String primary = applicationName(provider::reduce);
+
+        Map<String, String> replicaProperties = new HashMap<>(properties);
+        replicaProperties.put("hibernate.hbm2ddl.auto", "");
+        replicaProperties.put("hibernate.hikari.dataSource.applicationName", "replica");
+        EntityManagerFactory replica = Persistence.createEntityManagerFactory(HibernateUtils.DEFAULT_PERSISTENCE_UNIT, replicaProperties);
+
+        try {
+            RoutingTransactionProvider routing = new RoutingTransactionProvider(provider.getFactory(),
+                    Collections.singletonList(replica), 60_000);
+            assertEquals(applicationName(routing::read), "replica");
+            assertEquals(applicationName(routing::reduce), primary);
+
+            // Transactions that did not write or rolled back are not writes
+            final String name = UUID.randomUUID().toString();
+            routing.with(em -> routing.with(inner -> inner.find(JsonEntity.class, name)));
+            routing.with(em -> {
+                em.persist(entities(name, 1).get(0));
+                throw new IllegalStateException();
+            }, e -> false);
+            assertEquals(applicationName(routing::read), "replica");
+
+            // Reads after a write are from the primary
+            routing.with(em -> em.persist(entities(name, 1).get(0)));
+            assertEquals(applicationName(routing::read), primary);
+            assertEquals(routing.readOptional(em -> em.createQuery("SELECT e FROM JsonEntity e WHERE e.name = :name", JsonEntity.class)
+                    .setParameter("name", name)
+                    .getSingleResult()).get().getName(), name);
+
+            RoutingTransactionProvider nativeWrite = new RoutingTransactionProvider(provider.getFactory(),
+                    Collections.singletonList(replica), 60_000);
+            nativeWrite.with(em -> em.createNativeQuery("UPDATE JsonEntity SET name = name WHERE name = :name")
+                    .setParameter("name", name)
+                    .executeUpdate());
+            assertEquals(applicationName(nativeWrite::read), primary);
+
+            RoutingTransactionProvider noWindow = new RoutingTransactionProvider(provider.getFactory(),
+                    Collections.singletonList(replica));
+            noWindow.with(em -> em.persist(entities(name, 1).get(0)));
+            assertEquals(applicationName(noWindow::read), "replica");
+            List<Object> scrolled = new ArrayList<>();
+            noWindow.scroll(em -> em.createNativeQuery("SELECT current_setting('application_name')"), 10, scrolled::add);
+            assertEquals(scrolled, Collections.singletonList("replica"));
+
+            // Closed replicas are skipped
+            replica.close();
+            assertEquals(applicationName(noWindow::read), primary);
+        } finally {
+            if (replica.isOpen()) replica.close();
+        }
+    }
+
+    static String applicationName(Function<ReduceTransaction<String>, String> run) {
+        return run.apply(em -> (String) em.createNativeQuery("SELECT current_setting('application_name')").getSingleResult());
+    }
+
+    @Test
+    void metrics() throws Exception {
+        TransactionMetrics metrics = provider.getMetrics();
+        assertEquals(metrics.getUnitName(), HibernateUtils.DEFAULT_PERSISTENCE_UNIT);
+        JsonMetrics json = Metrics.json(HibernateUtils.DEFAULT_PERSISTENCE_UNIT);
+
+        AtomicInteger committed = new AtomicInteger();
+        AtomicLong readBytes = new AtomicLong();
+        MetricsListener listener = new MetricsListener() {
+            @Override
+            public void transaction(String unitName, long acquireNanos, long transactionNanos, boolean commit) {
+                assertTrue(acquireNanos <= transactionNanos);
+                if (commit) committed.incrementAndGet();
+            }
+
+            @Override
+            public void jsonRead(String unitName, int bytes) {
+                assertEquals(unitName, HibernateUtils.DEFAULT_PERSISTENCE_UNIT);
+                readBytes.addAndGet(bytes);
+            }
+        };
+        // Listeners of the jsonb module are called alongside the metrics
+        AtomicLong listenedBytes = new AtomicLong();
+        JsonTypeListener jsonListener = new JsonTypeListener() {
+            @Override
+            public void read(SessionFactoryImplementor factory, int bytes) {
+                listenedBytes.addAndGet(bytes);
+            }
+        };
+        Metrics.addListener(listener);
+        JsonUserType.addListener(jsonListener);
+        try {
+            long commits = metrics.getCommits();
+            long rollbacks = metrics.getRollbacks();
+            long writes = json.getWrites();
+
+            final String name = UUID.randomUUID().toString();
+            JsonEntity entity = entities(name, 1).get(0);
+            provider.with(em -> em.persist(entity));
+            provider.reduce(em -> em.find(JsonEntity.class, entity.getId()));
+            assertThrows(IllegalArgumentException.class, () -> provider.with(em -> em.persist(null)));
+
+            assertEquals(metrics.getCommits() - commits, 2);
+            assertEquals(metrics.getRollbacks() - rollbacks, 1);
+            assertEquals(committed.get(), 2);
+            assertTrue(json.getWrites() - writes >= 1);
+            assertEquals(readBytes.get(), "{\"index\": 0}".length());
+            assertEquals(listenedBytes.get(), readBytes.get());
+            assertTrue(metrics.getTransactionMaxMillis() > 0);
+
+            // Exposed through JMX
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(Metrics.JMX_DOMAIN + ":type=TransactionMetrics,unit="
+                    + ObjectName.quote(HibernateUtils.DEFAULT_PERSISTENCE_UNIT));
+            assertEquals(server.getAttribute(objectName, "Commits"), metrics.getCommits());
+            assertTrue((Long) server.getAttribute(new ObjectName(Metrics.JMX_DOMAIN + ":type=JsonMetrics,unit="
+                    + ObjectName.quote(HibernateUtils.DEFAULT_PERSISTENCE_UNIT)), "ReadBytes") > 0);
+        } finally {
+            Metrics.removeListener(listener);
+            JsonUserType.removeListener(jsonListener);
+        }
+    }
+
+    @Test
+    void histogram() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(histogram.getPercentile(99), 0);
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(histogram.getCount(), 100_000);
+        assertEquals(histogram.getMean(), 50_000_500);
+        for (double percentile : new double[]{50, 99, 99.9, 100}) {
+            double expected = percentile * 1_000_000;
+            double error = Math.abs(histogram.getPercentile(percentile) - expected) / expected;
+            assertTrue(error < 0.0625, percentile + " error " + error);
+        }
+        assertEquals(histogram.getMax(), histogram.getPercentile(100));
+        histogram.reset();
+        assertEquals(histogram.getMax(), 0);
+    }
+
+    @Test
+    void diagnostics() throws Exception {
+        final String name = UUID.randomUUID().toString();
+        provider.batch(entities(name, 20), 20, EntityManager::persist);
+
+        List<TransactionReport> reports = new ArrayList<>();
+        TransactionProvider diagnosed = new TransactionProvider(provider.getFactory());
+        diagnosed.setDiagnostics(new TransactionDiagnostics(10, 5, 0, 0, 0, reports::add));
+
+        // N+1, one select per id
+        diagnosed.reduce(em -> {
+            List<String> ids = em.createQuery("SELECT e.id FROM JsonEntity e WHERE e.name = :name", String.class)
+                    .setParameter("name", name)
+                    .getResultList();
+            for (String id : ids) {
+                em.find(JsonEntity.class, id);
+            }
+            return ids.size();
+        });
+        TransactionReport report = reports.get(0);
+        assertTrue(report.isFlagged());
+        assertTrue(report.isCommitted());
+        assertEquals(report.getPrepares(), 21);
+        assertEquals(report.getRepeats(), 20);
+        assertTrue(report.getRepeatedStatement().startsWith("select"), report.getRepeatedStatement());
+        assertEquals(report.getEntities(), 20);
+        assertTrue(report.getJsonBytes() >= 20 * "{\"index\": 0}".length(), report.toString());
+        assertEquals(report.getViolations(), "prepares > 10, repeats > 5");
+        assertTrue(report.getSite().startsWith(TransactionProviderTest.class.getName() + ".diagnostics("), report.getSite());
+
+        // Within thresholds
+        diagnosed.with(em -> em.find(JsonEntity.class, "none"));
+        assertFalse(reports.get(1).isFlagged());
+        assertNull(reports.get(1).getSite());
+        assertEquals(reports.get(1).getPrepares(), 1);
+
+        // Rolled back
+        assertThrows(IllegalArgumentException.class, () -> diagnosed.with(em -> em.persist(null)));
+        assertFalse(reports.get(2).isCommitted());
+        assertEquals(reports.size(), 3);
+    }
+
+    @Test
+    void propagation() throws Exception {
+        final String name = UUID.randomUUID().toString();
+        TransactionProvider other = new TransactionProvider(provider.getFactory());
+        assertNull(provider.getCurrentEntityManager());
+
+        // Inner transactions of the same factory join
+        provider.with(em -> {
+            assertSame(provider.getCurrentEntityManager(), em);
+            assertSame(HibernateUtils.reduce(inner -> inner), em);
+            assertSame(other.reduce(Propagation.MANDATORY, inner -> inner), em);
+            assertSame(provider.read(inner -> inner), em);
+            other.with(inner -> inner.persist(entities(name, 1).get(0)));
+
+            // Suspended by a new transaction
+            EntityManager requiresNew = provider.reduce(Propagation.REQUIRES_NEW, inner -> {
+                assertSame(provider.getCurrentEntityManager(), inner);
+                return inner;
+            });
+            assertNotSame(requiresNew, em);
+            assertSame(provider.getCurrentEntityManager(), em);
+        });
+        assertNull(provider.getCurrentEntityManager());
+        assertEquals(count(name), 1);
+
+        // New transactions commit apart from the current transaction
+        assertThrows(IllegalStateException.class, () -> provider.with(em -> {
+            em.persist(entities(name, 1).get(0));
+            provider.with(Propagation.REQUIRES_NEW, inner -> inner.persist(entities(name, 1).get(0)));
+            throw new IllegalStateException("rollback");
+        }));
+        assertEquals(count(name), 2);
+
+        // A failed joined transaction rolls back the current transaction
+        assertThrows(RollbackException.class, () -> provider.with(em -> {
+            em.persist(entities(name, 1).get(0));
+            provider.with(inner -> inner.persist(null), e -> false);
+        }));
+        assertEquals(count(name), 2);
+
+        assertThrows(TransactionRequiredException.class, () -> provider.with(Propagation.MANDATORY, em -> {
+        }));
+
+        // Transactions that may write cannot join a read only transaction, reads and new transactions can
+        provider.read(em -> {
+            assertThrows(IllegalStateException.class, () -> provider.with(inner -> inner.persist(entities(name, 1).get(0))));
+            assertThrows(IllegalStateException.class, () -> other.reduce(Propagation.MANDATORY, inner -> inner));
+            assertSame(provider.read(inner -> inner), em);
+            provider.with(Propagation.REQUIRES_NEW, inner -> inner.persist(entities(name, 1).get(0)));
+            return null;
+        });
+        assertEquals(count(name), 3);
+    }
+}
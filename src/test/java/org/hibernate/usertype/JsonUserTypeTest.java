@@ -0,0 +1,238 @@
+package org.hibernate.usertype;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.hibernate.HibernateException;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JsonUserType without database
+ * <p>
+ * Created By: Fuxing Loh
+ * Date: 18/10/2026
+ * Time: 11:40 AM
+ * Project: hibernate-postgres-jsonb
+ */
+class JsonUserTypeTest {
+
+    static ObjectMapper mapper = new ObjectMapper();
+
+    static JsonUserType type(String... parameters) {
+        Properties properties = new Properties();
+        for (int i = 0; i < parameters.length; i += 2) {
+            properties.setProperty(parameters[i], parameters[i + 1]);
+        }
+        JsonUserType type = new JsonUserType();
+        type.setParameterValues(properties);
+        return type;
+    }
+
+    static ObjectNode node() {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("parser", "jackson");
+        node.putArray("list").add(1).add(2);
+        return node;
+    }
+
+    @Test
+    void deepCopy() throws Exception {
+        JsonUserType type = type();
+        ObjectNode node = node();
+
+        Object copy = type.deepCopy(node);
+        assertNotSame(copy, node);
+        assertTrue(type.equals(copy, node));
+        assertNull(type.deepCopy(null));
+
+        node.put("name", "Fuxing");
+        assertFalse(type.equals(copy, node));
+    }
+
+    @Test
+    void fingerprint() throws Exception {
+        JsonUserType type = type(JsonUserType.DIRTY_CHECK, JsonUserType.FINGERPRINT);
+        ObjectNode node = node();
+
+        // Snapshot is not a second tree
+        Object snapshot = type.deepCopy(node);
+        assertTrue(snapshot instanceof JsonFingerprint);
+        assertTrue(type.equals(snapshot, node));
+        assertTrue(type.equals(snapshot, node()));
+        assertEquals(type.hashCode(snapshot), type.hashCode(node));
+
+        // Mutating the live value makes it dirty
+        node.put("name", "Fuxing");
+        assertFalse(type.equals(snapshot, node));
+        assertTrue(type.equals(type.deepCopy(node), node));
+
+        // Cache and merge still get real copies
+        assertEquals(type.replace(snapshot, null, null), node);
+    }
+
+    @Test
+    void lazy() throws Exception {
+        JsonUserType type = type(JsonUserType.LAZY, "true");
+        byte[] content = mapper.writeValueAsBytes(node());
+        JsonNode node = LazyObjectNode.of(content, 0, content.length, mapper.readerFor(JsonNode.class));
+
+        // Snapshot and dirty check without parsing
+        Object snapshot = type.deepCopy(node);
+        assertTrue(type.equals(snapshot, node));
+        assertTrue(LazyObjectNode.isUnparsed(node));
+        assertTrue(LazyObjectNode.isUnparsed(snapshot));
+
+        // First access parses
+        assertEquals(node.path("parser").asText(), "jackson");
+        assertFalse(LazyObjectNode.isUnparsed(node));
+        assertTrue(type.equals(snapshot, node));
+        assertEquals(node, node());
+
+        ((ObjectNode) node).put("name", "Fuxing");
+        assertFalse(type.equals(snapshot, node));
+    }
+
+    @Test
+    void cache() throws Exception {
+        JsonUserType type = type();
+        ObjectNode node = node();
+
+        // Cached form is immutable json bytes
+        Serializable cached = type.disassemble(node);
+        assertTrue(cached instanceof byte[]);
+        node.put("name", "Fuxing");
+        assertEquals(type.assemble(cached, null), node());
+
+        // Lazy assembles without parsing, and disassembles back to the same bytes
+        JsonUserType lazy = type(JsonUserType.LAZY, "true");
+        Object assembled = lazy.assemble(cached, null);
+        assertTrue(LazyObjectNode.isUnparsed(assembled));
+        assertSame(lazy.disassemble(assembled), cached);
+        assertEquals(assembled, node());
+        assertNull(type.disassemble(null));
+    }
+
+    @Test
+    void typed() throws Exception {
+        JsonUserType type = type(JsonUserType.CLASS, "java.util.List<" + Item.class.getName() + ">");
+        assertEquals(type.returnedClass(), List.class);
+
+        Item item = new Item();
+        item.name = "Foo";
+        List<Item> items = new ArrayList<>();
+        items.add(item);
+
+        // Item has no equals, compared by written json
+        @SuppressWarnings("unchecked")
+        List<Item> copy = (List<Item>) type.deepCopy(items);
+        assertNotSame(copy.get(0), item);
+        assertTrue(copy.get(0) instanceof Item);
+        assertTrue(type.equals(copy, items));
+        assertEquals(type.hashCode(copy), type.hashCode(items));
+
+        item.name = "Bar";
+        assertFalse(type.equals(copy, items));
+    }
+
+    @Test
+    void mapper() throws Exception {
+        byte[] json = "{\"price\":1.10}".getBytes(StandardCharsets.UTF_8);
+
+        JsonUserType type = type(JsonUserType.MAPPER, DecimalMapper.class.getName());
+        JsonNode node = (JsonNode) type.assemble(json, null);
+        assertEquals(node.get("price").decimalValue(), new BigDecimal("1.10"));
+
+        // Lazy nodes are created by the supplied mapper's node factory
+        JsonUserType lazy = type(JsonUserType.MAPPER, DecimalMapper.class.getName(), JsonUserType.LAZY, "true");
+        JsonNode lazyNode = (JsonNode) lazy.assemble(json, null);
+        assertTrue(LazyObjectNode.isUnparsed(lazyNode));
+        assertEquals(lazyNode.get("price").decimalValue(), new BigDecimal("1.10"));
+
+        assertThrows(HibernateException.class, () -> type(JsonUserType.MAPPER, Item.class.getName()));
+    }
+
+    public static class Item {
+        public String name;
+    }
+
+    public static class DecimalMapper implements Supplier<ObjectMapper> {
+        @Override
+        public ObjectMapper get() {
+            return new ObjectMapper()
+                    .setNodeFactory(JsonNodeFactory.withExactBigDecimals(true))
+                    .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        }
+    }
+
+    @Test
+    void buffer() throws Exception {
+        JsonBuffer buffer = JsonBuffer.acquire();
+        // Nested use on the same thread gets its own buffer
+        JsonBuffer nested = JsonBuffer.acquire();
+        assertNotSame(buffer, nested);
+        nested.release();
+
+        byte[] large = new byte[JsonBuffer.MAX_POOLED_SIZE + 1];
+        buffer.write(large, 0, large.length);
+        buffer.write('}');
+        assertEquals(buffer.length(), large.length + 1);
+        assertEquals(buffer.array()[large.length], '}');
+        buffer.release();
+
+        // Reused empty, huge buffers are not kept
+        JsonBuffer reused = JsonBuffer.acquire();
+        assertSame(reused, buffer);
+        assertEquals(reused.length(), 0);
+        assertEquals(reused.array().length, JsonBuffer.INITIAL_SIZE);
+        reused.release();
+    }
+
+    @Test
+    void compact() throws Exception {
+        JsonUserType type = type(JsonUserType.MAPPER, CompactMapper.class.getName());
+        JsonNode first = (JsonNode) type.fromStringValue("{\"status\":\"ACTIVE\",\"name\":\"Foo\",\"tags\":[\"ACTIVE\"]}");
+        JsonNode second = (JsonNode) type.fromStringValue("{\"status\":\"ACTIVE\",\"name\":\"Bar\"}");
+
+        // Short text values are shared across rows
+        assertSame(first.get("status"), second.get("status"));
+        assertSame(first.get("status"), first.get("tags").get(0));
+        assertEquals(first, type().fromStringValue("{\"status\":\"ACTIVE\",\"name\":\"Foo\",\"tags\":[\"ACTIVE\"]}"));
+
+        JsonNode copy = (JsonNode) type.deepCopy(first);
+        assertNotSame(copy, first);
+        assertEquals(copy, first);
+        ((ObjectNode) copy).put("name", "Baz");
+        assertEquals(first.get("name").asText(), "Foo");
+
+        // Grows past the compact fields in order
+        ObjectNode large = (ObjectNode) copy;
+        for (int i = 0; i < CompactMap.MAX_COMPACT * 2; i++) {
+            large.put("field" + i, i);
+        }
+        large.remove("status");
+        List<String> names = new ArrayList<>();
+        large.fieldNames().forEachRemaining(names::add);
+        assertEquals(names.size(), CompactMap.MAX_COMPACT * 2 + 2);
+        assertEquals(names.get(0), "name");
+        assertEquals(names.get(names.size() - 1), "field" + (CompactMap.MAX_COMPACT * 2 - 1));
+        assertEquals(large.get("field3").intValue(), 3);
+    }
+}